@@ -0,0 +1,127 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Control de memoria reservada por token: escanea los corpus estándar de
+ * CorpusGenerator con cada API del lexer y compara los bytes reservados por
+ * token (ThreadMXBean.getThreadAllocatedBytes, ya con el JIT caliente)
+ * contra un presupuesto. Termina con código 1 si alguna combinación lo
+ * supera, para usarlo como paso de CI que detecte regresiones como volver a
+ * crear un String por carácter.
+ *
+ *   java AllocationBudget [-s KB] [-m mezcla,...] [-w N] [-b [mezcla/]variante=bytes]...
+ *
+ * Hay un presupuesto por mezcla y variante (ver LexerBench para los
+ * nombres), con un margen de alrededor de un 25 % sobre lo medido en
+ * corpus de 512 KB y 1 MB; -b cambia el de una combinación o, sin mezcla,
+ * el de la variante en todas. Con corpus mucho más pequeños los costes
+ * fijos de cada escaneo (tabla de símbolos, buffer de StreamingLexer) se
+ * reparten entre pocos tokens y pueden pasarse.
+ */
+final class AllocationBudget {
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final String[] VARIANTS = {"tokens", "buffer", "ascii", "utf8", "stream"};
+
+    // Bytes por token, en el orden de VARIANTS. List<Token>: el Token y su
+    // hueco en la lista; los buffers compactos: sus arrays con el margen de
+    // crecimiento; streaming: solo los lexemas de números y errores. Una
+    // regresión de un String por símbolo suma unos 18 y supera los compactos
+    // en todas las mezclas.
+    private static final Map<String, double[]> DEFAULT_BUDGETS = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_BUDGETS.put("mixed",  new double[] {84, 47, 49, 49, 18});
+        DEFAULT_BUDGETS.put("ident",  new double[] {85, 48, 50, 50, 13});
+        DEFAULT_BUDGETS.put("number", new double[] {83, 46, 47, 47, 27});
+        DEFAULT_BUDGETS.put("punct",  new double[] {82, 46, 48, 48, 9});
+        DEFAULT_BUDGETS.put("space",  new double[] {85, 48, 53, 53, 22});
+    }
+
+    private AllocationBudget() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int kb = 1024;
+        String[] mixes = CorpusGenerator.MIXES;
+        int warmup = 5;
+        Map<String, double[]> budgets = new LinkedHashMap<>();
+        DEFAULT_BUDGETS.forEach((mix, b) -> budgets.put(mix, b.clone()));
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 == args.length) throw new IllegalArgumentException("falta el valor de " + arg);
+                String value = args[++i];
+                switch (arg) {
+                    case "-s": kb = Integer.parseInt(value); break;
+                    case "-m": mixes = value.split(","); break;
+                    case "-w": warmup = Integer.parseInt(value); break;
+                    case "-b": override(budgets, value); break;
+                    default: throw new IllegalArgumentException("opción desconocida: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Uso: java AllocationBudget [-s KB] [-m mezcla,...] [-w N] [-b [mezcla/]variante=bytes]...");
+            System.exit(2);
+            return;
+        }
+
+        int failures = 0;
+        System.out.printf("%-7s %-7s %10s %10s%n", "mezcla", "variante", "B/token", "límite");
+        for (String mix : mixes) {
+            double[] limits = budgets.get(mix);
+            if (limits == null) {
+                System.err.println("mezcla sin presupuesto: " + mix);
+                System.exit(2);
+            }
+            String text = LexerBench.corpus(mix, kb);
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            for (int v = 0; v < VARIANTS.length; v++) {
+                double perToken = measure(VARIANTS[v], text, bytes, warmup);
+                boolean ok = perToken <= limits[v];
+                if (!ok) failures++;
+                System.out.printf("%-7s %-7s %10.1f %10.1f%s%n",
+                    mix, VARIANTS[v], perToken, limits[v], ok ? "" : "  EXCEDIDO");
+            }
+        }
+        if (failures > 0) {
+            System.err.println(failures + " combinaciones por encima del presupuesto");
+            System.exit(1);
+        }
+    }
+
+    // mezcla/variante=bytes cambia una combinación; variante=bytes, la variante en todas las mezclas
+    private static void override(Map<String, double[]> budgets, String value) {
+        int eq = value.indexOf('=');
+        if (eq < 0) throw new IllegalArgumentException("presupuesto inválido: " + value);
+        String key = value.substring(0, eq);
+        int slash = key.indexOf('/');
+        String mix = slash < 0 ? null : key.substring(0, slash);
+        int v = Arrays.asList(VARIANTS).indexOf(key.substring(slash + 1));
+        if (v < 0 || (mix != null && !budgets.containsKey(mix))) {
+            throw new IllegalArgumentException("presupuesto inválido: " + value);
+        }
+        double bytes = Double.parseDouble(value.substring(eq + 1));
+        for (Map.Entry<String, double[]> e : budgets.entrySet()) {
+            if (mix == null || mix.equals(e.getKey())) e.getValue()[v] = bytes;
+        }
+    }
+
+    // Bytes por token de una operación, con la mínima de varias para no contar ruido del JIT
+    static double measure(String variant, String text, byte[] bytes, int warmup) throws IOException {
+        for (int i = 0; i < warmup; i++) LexerBench.scan(variant, text, bytes);
+        long thread = Thread.currentThread().getId();
+        long best = Long.MAX_VALUE;
+        long tokens = 1;
+        for (int i = 0; i < 3; i++) {
+            long a0 = THREADS.getThreadAllocatedBytes(thread);
+            tokens = LexerBench.scan(variant, text, bytes);
+            best = Math.min(best, THREADS.getThreadAllocatedBytes(thread) - a0);
+        }
+        return (double) best / tokens;
+    }
+}
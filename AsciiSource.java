@@ -0,0 +1,75 @@
+import java.nio.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Vista CharSequence sobre bytes ASCII (por ejemplo un archivo mapeado con
+ * FileChannel.map): cada byte es un char, sin copiar ni decodificar. Solo
+ * es correcta si todos los bytes del rango son menores que 0x80; con UTF-8
+ * general charAt devuelve bytes sueltos, pero subSequence().toString() sigue
+ * decodificando bien, que es como la usa Utf8Lexer para sacar lexemas.
+ */
+final class AsciiSource implements CharSequence {
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final ByteBuffer bytes;
+    private final int base;
+    private final int length;
+
+    AsciiSource(ByteBuffer bytes) {
+        this(bytes, bytes.position(), bytes.remaining());
+    }
+
+    private AsciiSource(ByteBuffer bytes, int base, int length) {
+        this.bytes = bytes;
+        this.base = base;
+        this.length = length;
+    }
+
+    /** true si todos los bytes entre position y limit son ASCII (8 bytes por paso). */
+    static boolean isAscii(ByteBuffer bytes) {
+        ByteBuffer b = bytes.duplicate().order(ByteOrder.nativeOrder());
+        int i = b.position();
+        int end = b.limit();
+        for (; i + 8 <= end; i += 8) {
+            if ((b.getLong(i) & HIGH_BITS) != 0) return false;
+        }
+        for (; i < end; i++) {
+            if (b.get(i) < 0) return false;
+        }
+        return true;
+    }
+
+    /** Los bytes en little endian para leer 8 chars por paso (ver Swar); el char i está en base() + i. */
+    ByteBuffer words() {
+        return bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    int base() {
+        return base;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(base + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("rango " + start + ".." + end);
+        }
+        return new AsciiSource(bytes, base + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        bytes.get(base, copy);
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+}
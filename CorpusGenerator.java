@@ -0,0 +1,303 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Generador determinista de programas sintéticos para pruebas de carga y
+ * benchmarks: sentencias var/print, bloques y expresiones con paréntesis
+ * anidados que usan todos los símbolos de Punct. La misma semilla y los
+ * mismos parámetros dan siempre el mismo texto, y la salida va por un
+ * Writer en trozos, así que se pueden generar GB sin tenerlos en memoria.
+ *
+ *   java CorpusGenerator [-s TAMAÑO[K|M|G]] [--seed N] [--mix NOMBRE] [--errors TASA] [-o archivo]
+ *
+ * Las mezclas (mixed, ident, number, punct, space) fijan la distribución de
+ * tokens; con --errors se inserta un carácter inválido, rodeado de espacios,
+ * tras cada token con esa probabilidad. El texto es ASCII: chars = bytes.
+ */
+final class CorpusGenerator {
+    static final String[] MIXES = {"mixed", "ident", "number", "punct", "space"};
+
+    private static final int FLUSH = 1 << 16;
+    private static final int MAX_BLOCK_DEPTH = 8;
+    private static final int MAX_PAREN_DEPTH = 4;
+
+    // Operadores entre operandos: todos los símbolos salvo ';', que cierra sentencias
+    private static final String[] OPERATORS = Arrays.stream(Punct.values())
+        .filter(p -> p.type == TokenType.SYMBOL && p != Punct.SEMICOLON)
+        .map(p -> p.lexeme)
+        .toArray(String[]::new);
+
+    // Caracteres que el lexer nunca acepta, ni solos ni junto a otros
+    private static final char[] INVALID = "@#$?`~^&|\\".chars()
+        .filter(c -> Lexer.charClass((char) c) == Lexer.CC_INVALID)
+        .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
+        .toString().toCharArray();
+
+    /** Totales de lo generado; tokens incluye los errores (un token ERROR cada uno) pero no EOF. */
+    static final class Stats {
+        long chars;
+        long tokens;
+        long errors;
+
+        @Override
+        public String toString() {
+            return chars + " chars, " + tokens + " tokens, " + errors + " errores";
+        }
+    }
+
+    // Distribución de tokens
+    double identifiers = 0.6;  // probabilidad de que un operando sea identificador y no número
+    double decimals = 0.3;     // fracción de números con parte decimal
+    double operators = 2;      // operadores medios por expresión
+    double nesting = 0.15;     // probabilidad de paréntesis en un operando o de bloque en una sentencia
+    double prints = 0.4;       // fracción de sentencias print frente a var
+    int indent = 4;            // espacios por nivel de bloque
+    double blankLines = 0.05;
+    double errorRate = 0;      // probabilidad por token de insertar un carácter inválido
+
+    private final long seed;
+    private SplittableRandom random;
+    private String[] names;
+    private StringBuilder out;
+    private Writer sink;
+    private Stats stats;
+    private int depth;
+
+    CorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** Generador con la distribución de una mezcla con nombre (ver MIXES). */
+    static CorpusGenerator mix(String name, long seed) {
+        CorpusGenerator g = new CorpusGenerator(seed);
+        switch (name) {
+            case "mixed":
+                break;
+            case "ident":
+                g.identifiers = 0.95;
+                g.operators = 1.5;
+                g.prints = 0.2;
+                break;
+            case "number":
+                g.identifiers = 0.1;
+                g.decimals = 0.4;
+                g.operators = 4;
+                break;
+            case "punct":
+                g.operators = 6;
+                g.nesting = 0.4;
+                g.identifiers = 0.9;
+                break;
+            case "space":
+                g.operators = 0.5;
+                g.nesting = 0.3;
+                g.indent = 8;
+                g.blankLines = 0.4;
+                break;
+            default:
+                throw new IllegalArgumentException("mezcla desconocida: " + name);
+        }
+        return g;
+    }
+
+    CorpusGenerator errorRate(double rate) {
+        this.errorRate = rate;
+        return this;
+    }
+
+    /** Programa de al menos size chars (se completa la sentencia en curso y se cierran los bloques). */
+    String generate(int size) {
+        StringWriter w = new StringWriter(size + 256);
+        try {
+            write(w, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return w.toString();
+    }
+
+    /** Igual que generate() pero escribiendo en trozos; sirve para cualquier tamaño. */
+    Stats write(Writer writer, long size) throws IOException {
+        random = new SplittableRandom(seed);
+        names = identifiers(random, 4096);
+        out = new StringBuilder(FLUSH + 1024);
+        sink = writer;
+        stats = new Stats();
+        depth = 0;
+
+        while (stats.chars + out.length() < size) {
+            statement();
+            if (out.length() >= FLUSH) flush();
+        }
+        while (depth > 0) {
+            depth--;
+            newline();
+            token("}");
+        }
+        out.append('\n');
+        flush();
+        writer.flush();
+        return stats;
+    }
+
+    private void flush() throws IOException {
+        sink.append(out);
+        stats.chars += out.length();
+        out.setLength(0);
+    }
+
+    // === Gramática ===
+
+    private void statement() {
+        newline();
+        if (depth < MAX_BLOCK_DEPTH && random.nextDouble() < nesting) {
+            token("{");
+            depth++;
+            return;
+        }
+        if (depth > 0 && random.nextDouble() < 0.25) {
+            depth--;
+            // el salto de línea ya se indentó un nivel más: se quita esa sangría
+            out.setLength(out.length() - indent);
+            token("}");
+            return;
+        }
+        if (random.nextDouble() < prints) {
+            token("print");
+            token("(");
+            expression(0);
+            token(")");
+        } else {
+            token("var");
+            space();
+            token(identifier());
+            space();
+            token("=");
+            space();
+            expression(0);
+        }
+        token(";");
+    }
+
+    private void expression(int parens) {
+        operand(parens);
+        double more = operators / (operators + 1);
+        while (random.nextDouble() < more) {
+            space();
+            token(OPERATORS[random.nextInt(OPERATORS.length)]);
+            space();
+            operand(parens);
+        }
+    }
+
+    private void operand(int parens) {
+        if (parens < MAX_PAREN_DEPTH && random.nextDouble() < nesting) {
+            token("(");
+            expression(parens + 1);
+            token(")");
+        } else if (random.nextDouble() < identifiers) {
+            token(identifier());
+        } else {
+            token(number());
+        }
+    }
+
+    // Pocos nombres muy repetidos y muchos raros, como en código real
+    private String identifier() {
+        double u = random.nextDouble();
+        return names[(int) (u * u * u * names.length)];
+    }
+
+    private String number() {
+        String n = Integer.toString(random.nextInt(random.nextBoolean() ? 100 : 1_000_000));
+        return random.nextDouble() < decimals ? n + "." + random.nextInt(1000) : n;
+    }
+
+    private void token(String text) {
+        out.append(text);
+        stats.tokens++;
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            out.append(' ').append(INVALID[random.nextInt(INVALID.length)]).append(' ');
+            stats.tokens++;
+            stats.errors++;
+        }
+    }
+
+    private void space() {
+        out.append(' ');
+    }
+
+    private void newline() {
+        if (out.length() > 0 || stats.chars > 0) out.append('\n');
+        if (random.nextDouble() < blankLines) out.append('\n');
+        for (int i = depth * indent; i > 0; i--) out.append(' ');
+    }
+
+    private static String[] identifiers(SplittableRandom r, int count) {
+        Set<String> seen = new LinkedHashSet<>();
+        while (seen.size() < count) {
+            int len = 1 + r.nextInt(3) + r.nextInt(12) * r.nextInt(2);
+            StringBuilder sb = new StringBuilder(len);
+            sb.append(r.nextInt(8) == 0 ? '_' : (char) ('a' + r.nextInt(26)));
+            for (int i = 1; i < len; i++) {
+                int k = r.nextInt(40);
+                if (k < 26) sb.append((char) ('a' + k));
+                else if (k < 36) sb.append((char) ('0' + k - 26));
+                else if (k < 37) sb.append('_');
+                else sb.append((char) ('A' + r.nextInt(26)));
+            }
+            String name = sb.toString();
+            if (Lexer.KEYWORDS.lookup(name, 0, name.length()) < 0) seen.add(name);
+        }
+        return seen.toArray(new String[0]);
+    }
+
+    // === Línea de comandos ===
+
+    public static void main(String[] args) throws IOException {
+        long size = 1 << 20;
+        long seed = 42;
+        String mix = "mixed";
+        double errors = 0;
+        String output = null;
+        CorpusGenerator g;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 == args.length) throw new IllegalArgumentException("falta el valor de " + arg);
+                String value = args[++i];
+                switch (arg) {
+                    case "-s": case "--size": size = parseSize(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--mix": mix = value; break;
+                    case "--errors": errors = Double.parseDouble(value); break;
+                    case "-o": case "--output": output = value; break;
+                    default: throw new IllegalArgumentException("opción desconocida: " + arg);
+                }
+            }
+            g = mix(mix, seed).errorRate(errors);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Uso: java CorpusGenerator [-s TAMAÑO[K|M|G]] [--seed N] [--mix "
+                + String.join("|", MIXES) + "] [--errors TASA] [-o archivo]");
+            System.exit(2);
+            return;
+        }
+
+        OutputStream stream = output == null ? new FileOutputStream(FileDescriptor.out) : Files.newOutputStream(Paths.get(output));
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.US_ASCII), FLUSH)) {
+            Stats stats = g.write(w, size);
+            System.err.println(stats);
+        }
+    }
+
+    // 64K, 10M, 2G... en múltiplos de 1024
+    static long parseSize(String s) {
+        char unit = Character.toUpperCase(s.charAt(s.length() - 1));
+        int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+        String digits = shift == 0 ? s : s.substring(0, s.length() - 1);
+        return Long.parseLong(digits) << shift;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Comprobación diferencial: sobre corpus de CorpusGenerator con errores
+ * inyectados, cada camino del lexer tiene que dar exactamente los mismos
+ * tokens (tipo, offset, longitud, línea, columna y lexema) y los mismos
+ * diagnósticos que la referencia, new Lexer(text).scanToBuffer() en modo
+ * recuperación:
+ *
+ *   parallel  scanToBufferParallel con trozos pequeños, para forzar muchas
+ *             costuras (y alguna especulación fallida)
+ *   ascii     Lexer.fromBytes, el camino sobre bytes ASCII
+ *   utf8      Utf8Lexer (los corpus son ASCII, así que los offsets en bytes
+ *             coinciden con los de chars)
+ *   stream    StreamingLexer sobre un canal, con un buffer pequeño
+ *   tokfile   escribir el buffer con TokenFile y volver a leerlo
+ *   relex     una cadena de ediciones aleatorias con Lexer.relex, cada una
+ *             comparada con un escaneo desde cero del texto editado
+ *
+ * Termina con código 1 en la primera diferencia, que se imprime con el
+ * token esperado y el obtenido. Como AllocationBudget, sirve de paso de CI;
+ * con -Dlexer.scalar=true o sin --add-modules jdk.incubator.vector
+ * comprueba los otros caminos de Swar y VectorScan.
+ *
+ *   java DifferentialCheck [-s KB] [-m mezcla,...] [-n semillas] [-e tasa] [-j hilos] [-c chars] [-r ediciones]
+ */
+final class DifferentialCheck {
+
+    private DifferentialCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int kb = 128;
+        String[] mixes = CorpusGenerator.MIXES;
+        int seeds = 3;
+        double errorRate = 0.01;
+        int jobs = 4;
+        int chunk = 4096;
+        int edits = 100;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 == args.length) throw new IllegalArgumentException("falta el valor de " + arg);
+                String value = args[++i];
+                switch (arg) {
+                    case "-s": kb = Integer.parseInt(value); break;
+                    case "-m": mixes = value.split(","); break;
+                    case "-n": seeds = Integer.parseInt(value); break;
+                    case "-e": errorRate = Double.parseDouble(value); break;
+                    case "-j": jobs = Integer.parseInt(value); break;
+                    case "-c": chunk = Integer.parseInt(value); break;
+                    case "-r": edits = Integer.parseInt(value); break;
+                    default: throw new IllegalArgumentException("opción desconocida: " + arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Uso: java DifferentialCheck [-s KB] [-m mezcla,...] [-n semillas] [-e tasa]"
+                + " [-j hilos] [-c chars] [-r ediciones]");
+            System.exit(2);
+            return;
+        }
+
+        System.out.printf("%-7s %8s %8s %8s%n", "mezcla", "semilla", "tokens", "errores");
+        for (String mix : mixes) {
+            for (long seed = 1; seed <= seeds; seed++) {
+                String text = CorpusGenerator.mix(mix, seed).errorRate(errorRate).generate(kb * 1024);
+                String where = mix + "/" + seed;
+                Lexer reference = new Lexer(text);
+                reference.setRecoveryMode(true);
+                TokenBuffer expectedBuffer = reference.scanToBuffer();
+                List<String> expected = signatures(expectedBuffer);
+                List<String> errors = signatures(reference.diagnostics());
+
+                Lexer parallel = new Lexer(text);
+                parallel.setRecoveryMode(true);
+                TokenBuffer buffer = parallel.scanToBufferParallel(jobs, chunk);
+                compare(where, "parallel", expectedBuffer, buffer);
+                compare(where, "parallel", errors, signatures(parallel.diagnostics()));
+
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                Lexer ascii = Lexer.fromBytes(ByteBuffer.wrap(bytes));
+                ascii.setRecoveryMode(true);
+                compare(where, "ascii", expectedBuffer, ascii.scanToBuffer());
+                compare(where, "ascii", errors, signatures(ascii.diagnostics()));
+
+                Utf8Lexer utf8 = new Utf8Lexer(bytes);
+                utf8.setRecoveryMode(true);
+                compare(where, "utf8", expectedBuffer, utf8.scanToBuffer());
+                compare(where, "utf8", errors, signatures(utf8.diagnostics()));
+
+                StreamingLexer stream = new StreamingLexer(Channels.newChannel(new ByteArrayInputStream(bytes)), 64);
+                stream.setRecoveryMode(true);
+                List<Token> streamed = new ArrayList<>();
+                Token t;
+                do {
+                    t = stream.nextToken();
+                    streamed.add(t);
+                } while (t.type != TokenType.EOF);
+                compare(where, "stream", expected, signatures(streamed));
+                compare(where, "stream", errors, signatures(stream.diagnostics()));
+
+                ByteArrayOutputStream file = new ByteArrayOutputStream();
+                TokenFile.write(buffer, file);
+                compare(where, "tokfile", expected,
+                        signatures(TokenFile.read(ByteBuffer.wrap(file.toByteArray())).readTokens()));
+
+                relex(where, buffer, new SplittableRandom(seed), edits);
+
+                System.out.printf("%-7s %8d %8d %8d%n", mix, seed, expected.size() - 1, errors.size());
+            }
+        }
+    }
+
+    // Ediciones encadenadas: borrar hasta 16 chars e insertar un trozo del propio texto
+    // (con saltos de línea, números partidos y caracteres inválidos de vez en cuando)
+    private static void relex(String where, TokenBuffer buffer, SplittableRandom random, int edits) {
+        for (int i = 0; i < edits; i++) {
+            CharSequence old = buffer.source();
+            int offset = random.nextInt(old.length() + 1);
+            int deleted = random.nextInt(Math.min(16, old.length() - offset) + 1);
+            int from = random.nextInt(old.length() + 1);
+            CharSequence inserted = old.subSequence(from, Math.min(old.length(), from + random.nextInt(17)));
+            buffer = Lexer.relex(buffer, offset, deleted, inserted);
+
+            Lexer fresh = new Lexer(buffer.source().toString());
+            fresh.setRecoveryMode(true);
+            compare(where, "relex #" + i + " (" + offset + "-" + deleted + "+" + inserted.length() + ")",
+                    fresh.scanToBuffer(), buffer);
+        }
+    }
+
+    // Campo a campo, sin crear cadenas salvo para informar de la diferencia
+    private static void compare(String where, String variant, TokenBuffer expected, TokenBuffer actual) {
+        int n = Math.min(expected.size(), actual.size());
+        for (int i = 0; i < n; i++) {
+            boolean same = expected.type(i) == actual.type(i) && expected.start(i) == actual.start(i)
+                && expected.length(i) == actual.length(i) && expected.line(i) == actual.line(i)
+                && expected.column(i) == actual.column(i)
+                && Objects.equals(expected.lexeme(i), actual.lexeme(i));
+            if (!same) fail(where, variant, i, signature(expected, i), signature(actual, i));
+        }
+        if (expected.size() != actual.size()) {
+            fail(where, variant, n, n < expected.size() ? signature(expected, n) : "(nada)",
+                 n < actual.size() ? signature(actual, n) : "(nada)");
+        }
+    }
+
+    private static void compare(String where, String variant, List<String> expected, List<String> actual) {
+        int n = Math.min(expected.size(), actual.size());
+        for (int i = 0; i < n; i++) {
+            if (!expected.get(i).equals(actual.get(i))) {
+                fail(where, variant, i, expected.get(i), actual.get(i));
+            }
+        }
+        if (expected.size() != actual.size()) {
+            fail(where, variant, n, n < expected.size() ? expected.get(n) : "(nada)",
+                 n < actual.size() ? actual.get(n) : "(nada)");
+        }
+    }
+
+    private static void fail(String where, String variant, int index, String expected, String actual) {
+        System.err.printf("%s %s: diferencia en el elemento %d%n  esperado %s%n  obtenido %s%n",
+                          where, variant, index, expected, actual);
+        System.exit(1);
+    }
+
+    // Los identificadores se comparan por lexema: cada lexer tiene su propia SymbolTable
+    private static List<String> signatures(TokenBuffer buffer) {
+        List<String> out = new ArrayList<>(buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            out.add(signature(buffer, i));
+        }
+        return out;
+    }
+
+    private static String signature(TokenBuffer buffer, int i) {
+        return signature(buffer.type(i), buffer.start(i), buffer.length(i),
+                         buffer.line(i), buffer.column(i), buffer.lexeme(i));
+    }
+
+    private static List<String> signatures(List<?> items) {
+        List<String> out = new ArrayList<>(items.size());
+        for (Object o : items) {
+            if (o instanceof Token) {
+                Token t = (Token) o;
+                out.add(signature(t.type, t.offset, t.length, t.line, t.column, t.lexeme()));
+            } else {
+                Diagnostic d = (Diagnostic) o;
+                out.add(d + " @" + d.offset);
+            }
+        }
+        return out;
+    }
+
+    private static String signature(TokenType type, int offset, int length, int line, int column, String lexeme) {
+        return type + " '" + lexeme + "' @" + offset + "+" + length + " " + line + ":" + column;
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Reconocedor de palabras reservadas con hash perfecto. Se declara una sola
+ * vez con la lista de palabras y en la construcción busca una semilla para
+ * la que ninguna palabra colisiona; así lookup() decide con una sola
+ * comparación sobre el rango de la fuente, sin crear el String.
+ */
+final class KeywordTable {
+    private static final int MAX_SEEDS = 4096;
+
+    private final String[] words;
+    private final int[] slots; // índice de palabra + 1; 0 = hueco
+    private final int mask;
+    private final int seed;
+    private final boolean fullHash; // false: solo longitud, primer, medio y último carácter
+    private final int minLength;
+    private final int maxLength;
+
+    KeywordTable(String... words) {
+        this.words = words.clone();
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].isEmpty()) throw new IllegalArgumentException("palabra reservada vacía");
+            for (int j = 0; j < i; j++) {
+                if (words[j].equals(words[i])) {
+                    throw new IllegalArgumentException("palabra reservada repetida: " + words[i]);
+                }
+            }
+            min = Math.min(min, words[i].length());
+            max = Math.max(max, words[i].length());
+        }
+        this.minLength = min;
+        this.maxLength = max;
+
+        // Primero el hash barato; si no hay semilla perfecta, hash de la palabra entera
+        int size = Integer.highestOneBit(Math.max(words.length, 1) * 2 - 1) << 1;
+        for (int mode = 0; mode < 2; mode++) {
+            boolean full = mode == 1;
+            for (int sz = size; sz <= size * 8; sz <<= 1) {
+                for (int s = 1; s < MAX_SEEDS * 2; s += 2) {
+                    int[] table = place(full, s, sz - 1);
+                    if (table != null) {
+                        this.slots = table;
+                        this.mask = sz - 1;
+                        this.seed = s;
+                        this.fullHash = full;
+                        return;
+                    }
+                }
+            }
+        }
+        throw new IllegalArgumentException("no se encontró un hash perfecto para las palabras reservadas");
+    }
+
+    private int[] place(boolean full, int s, int m) {
+        int[] table = new int[m + 1];
+        for (int i = 0; i < words.length; i++) {
+            int slot = hash(words[i], 0, words[i].length(), full, s) & m;
+            if (table[slot] != 0) return null;
+            table[slot] = i + 1;
+        }
+        return table;
+    }
+
+    private static int hash(CharSequence src, int start, int end, boolean full, int s) {
+        int len = end - start;
+        int h = len;
+        if (full) {
+            for (int i = start; i < end; i++) h = (h ^ src.charAt(i)) * s;
+        } else {
+            h = (h ^ src.charAt(start)) * s;
+            h = (h ^ src.charAt(start + (len >>> 1))) * s;
+            h = (h ^ src.charAt(end - 1)) * s;
+        }
+        return h ^ (h >>> 15);
+    }
+
+    /** Índice de la palabra reservada en src[start, end), o -1 si no lo es. */
+    int lookup(CharSequence src, int start, int end) {
+        int len = end - start;
+        if (len < minLength || len > maxLength) return -1;
+        int index = slots[hash(src, start, end, fullHash, seed) & mask] - 1;
+        if (index < 0 || !Token.regionEquals(src, start, len, words[index])) return -1;
+        return index;
+    }
+
+    String word(int index) {
+        return words[index];
+    }
+
+    int size() {
+        return words.length;
+    }
+}
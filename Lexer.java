@@ -1,4 +1,11 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 enum TokenType {
     IDENTIFIER,     // nombres de variables, funciones
@@ -7,135 +14,703 @@ enum TokenType {
     SYMBOL,         // + - * / = ; , . == != <= >=
     PAREN,          // ( )
     BRACE,          // { }
+    ERROR,          // carácter inválido (solo en modo recuperación)
     EOF             // fin de archivo
 }
 
 class Token {
     final TokenType type;
-    final String lexeme;
+    final int offset;   // posición del token dentro de la fuente
+    final int length;
     final int line;
     final int column;
+    final int id;       // IDENTIFIER: id en la SymbolTable; KEYWORD: índice de la palabra;
+                        // SYMBOL/PAREN/BRACE: ordinal de Punct; -1 si no aplica
+    private final CharSequence source;
+    private String lexeme; // se materializa en lexeme() solo si alguien lo pide
 
     Token(TokenType type, String lexeme, int line, int column) {
+        this(type, lexeme, 0, lexeme.length(), line, column, -1, lexeme);
+    }
+
+    Token(TokenType type, CharSequence source, int offset, int length, int line, int column) {
+        this(type, source, offset, length, line, column, -1, null);
+    }
+
+    // lexeme puede ser null (se recorta de source al pedirlo) o ya el String canónico
+    Token(TokenType type, CharSequence source, int offset, int length, int line, int column,
+          int id, String lexeme) {
         this.type = type;
-        this.lexeme = lexeme;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
         this.line = line;
         this.column = column;
+        this.id = id;
+        this.lexeme = lexeme;
+    }
+
+    // Id de símbolo para identificadores (comparar variables por int), -1 en otro caso
+    int symbolId() {
+        return type == TokenType.IDENTIFIER ? id : -1;
+    }
+
+    // Tipo fino de paréntesis, llaves y símbolos; null en otro caso
+    Punct punct() {
+        boolean fixed = type == TokenType.SYMBOL || type == TokenType.PAREN || type == TokenType.BRACE;
+        return fixed && id >= 0 ? Punct.of(id) : null;
+    }
+
+    /**
+     * Lexema compartido para tokens de ortografía fija e identificadores
+     * internados; null si hay que recortarlo de la fuente (números).
+     */
+    static String canonicalLexeme(TokenType type, int id, SymbolTable symbols) {
+        switch (type) {
+            case IDENTIFIER: return symbols.name(id);
+            case KEYWORD: return Lexer.KEYWORDS.word(id);
+            case SYMBOL:
+            case PAREN:
+            case BRACE: return Punct.of(id).lexeme;
+            case EOF: return "";
+            default: return null;
+        }
+    }
+
+    String lexeme() {
+        if (lexeme == null) {
+            lexeme = source.subSequence(offset, offset + length).toString();
+        }
+        return lexeme;
+    }
+
+    char charAt(int i) {
+        if (lexeme != null) return lexeme.charAt(i);
+        return source.charAt(offset + i);
+    }
+
+    // Compara el lexema con s sin materializarlo
+    boolean lexemeEquals(CharSequence s) {
+        if (lexeme != null) return lexeme.contentEquals(s);
+        return regionEquals(source, offset, length, s);
+    }
+
+    static boolean regionEquals(CharSequence source, int offset, int length, CharSequence s) {
+        if (s.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            if (source.charAt(offset + i) != s.charAt(i)) return false;
+        }
+        return true;
     }
 
     @Override
     public String toString() {
-        return "<" + type + ", '" + lexeme + "', line=" + line + ", col=" + column + ">";
+        return "<" + type + ", '" + lexeme() + "', line=" + line + ", col=" + column + ">";
     }
 }
 
 class LexicalException extends RuntimeException {
+    final Diagnostic diagnostic; // null si no viene del lexer
+
     LexicalException(String message) {
         super(message);
+        this.diagnostic = null;
+    }
+
+    // Variante del lexer: sin stack trace, que no aporta nada para un error de entrada
+    LexicalException(String message, Diagnostic diagnostic) {
+        super(message, null, false, false);
+        this.diagnostic = diagnostic;
+    }
+}
+
+/** Error léxico registrado: posición y carácter inválido. */
+final class Diagnostic {
+    final int offset;
+    final int line;
+    final int column;
+    final char ch;
+
+    Diagnostic(int offset, int line, int column, char ch) {
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.ch = ch;
+    }
+
+    @Override
+    public String toString() {
+        return "línea " + line + ", columna " + column + ": carácter inválido '" + Lexer.printable(ch) + "'";
     }
 }
 
 public class Lexer {
-    private final String source;
-    private final List<String> lines; // para mostrar la línea en errores
+    private final CharSequence source;
+    private final int end;    // fin de la región a escanear (source.length() salvo en los trozos)
+    private final ByteBuffer words; // bytes de una AsciiSource para el camino SWAR; null si no hay
+    private final int wordsBase;
+    private int[] lineStarts; // inicio de cada línea; se calcula en el primer error
     private int pos = 0;
     private int line = 1;
     private int column = 1;
 
+    // Lookahead acotado de la API de streaming (buffer circular)
+    static final int MAX_LOOKAHEAD = 4; // potencia de dos
+    private final Token[] lookahead = new Token[MAX_LOOKAHEAD];
+    private int laHead = 0;
+    private int laCount = 0;
+
+    // Inicio del último token reconocido por lexNext()
+    private int tokStart;
+    private int tokLine;
+    private int tokColumn;
+    private int tokId;
+
+    // Identificadores internados de esta entrada
+    private final SymbolTable symbols;
+
+    // Modo recuperación: los errores se registran y se emite un token ERROR
+    private boolean recovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    // Los trozos del escaneo paralelo no cuentan en LexerMetrics ni emiten eventos JFR: cuenta el escaneo completo
+    private boolean countMetrics = true;
+
     // Palabras reservadas básicas (puedes ampliar esta lista)
-    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+    static final KeywordTable KEYWORDS = new KeywordTable(
         "var", "print"
-    ));
-
-    // Símbolos permitidos de un carácter
-    private static final Set<Character> SINGLE_SYMBOLS = new HashSet<>(Arrays.asList(
-        '+','-','*','/','%','=', ';', ',', '.', ':'
-    ));
+    );
+
+    // Clases de carácter para el despacho por tabla en scanTokens()
+    static final byte CC_INVALID = 0;
+    static final byte CC_WHITESPACE = 1;
+    static final byte CC_IDENT = 2;     // letra o '_'
+    static final byte CC_DIGIT = 3;
+    static final byte CC_PAREN = 4;
+    static final byte CC_BRACE = 5;
+    static final byte CC_SYMBOL = 6;    // símbolo simple (puede iniciar uno doble)
+    static final byte CC_OPERATOR = 7;  // solo válido como inicio de un operador doble
+
+    // Tabla ASCII precalculada; los símbolos salen de Punct
+    static final byte[] CHAR_CLASS = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = CC_IDENT;
+        for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = CC_IDENT;
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = CC_DIGIT;
+        CHAR_CLASS['_'] = CC_IDENT;
+        CHAR_CLASS[' '] = CC_WHITESPACE;
+        CHAR_CLASS['\r'] = CC_WHITESPACE;
+        CHAR_CLASS['\t'] = CC_WHITESPACE;
+        CHAR_CLASS['\n'] = CC_WHITESPACE;
+        for (Punct p : Punct.values()) {
+            if (p.lexeme.length() != 1) continue;
+            char c = p.lexeme.charAt(0);
+            CHAR_CLASS[c] = p.type == TokenType.PAREN ? CC_PAREN
+                          : p.type == TokenType.BRACE ? CC_BRACE : CC_SYMBOL;
+        }
+        for (Punct p : Punct.values()) {
+            char first = p.lexeme.charAt(0);
+            if (p.lexeme.length() == 2 && CHAR_CLASS[first] == CC_INVALID) CHAR_CLASS[first] = CC_OPERATOR;
+        }
+    }
 
-    // Operadores de dos caracteres soportados
-    private static final Set<String> DOUBLE_SYMBOLS = new HashSet<>(Arrays.asList(
-        "==","!=", "<=", ">="
-    ));
+    public Lexer(CharSequence source) {
+        this.source = source;
+        this.end = source.length();
+        this.symbols = new SymbolTable();
+        this.words = wordsOf(source);
+        this.wordsBase = source instanceof AsciiSource ? ((AsciiSource) source).base() : 0;
+    }
 
-    public Lexer(String source) {
+    // Lexer sobre source[start, end) que empieza en la línea y columna dadas
+    // (trozos del escaneo paralelo, relexeo incremental)
+    private Lexer(CharSequence source, int start, int end, int line, int column, SymbolTable symbols) {
         this.source = source;
-        this.lines = Arrays.asList(source.split("\n", -1));
+        this.end = end;
+        this.pos = start;
+        this.line = line;
+        this.column = column;
+        this.symbols = symbols;
+        this.words = wordsOf(source);
+        this.wordsBase = source instanceof AsciiSource ? ((AsciiSource) source).base() : 0;
+    }
+
+    private static ByteBuffer wordsOf(CharSequence source) {
+        return Swar.ENABLED && source instanceof AsciiSource ? ((AsciiSource) source).words() : null;
+    }
+
+    /**
+     * Lexer sobre un archivo mapeado en memoria. Si el archivo es ASCII se
+     * lexea directamente sobre los bytes mapeados (sin copiarlo al heap ni
+     * decodificarlo); si no, se decodifica como UTF-8.
+     */
+    public static Lexer fromPath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("archivo demasiado grande para mapear: " + path);
+            }
+            return fromBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** Lexer sobre bytes UTF-8: sin copia si son ASCII, decodificados si no. */
+    public static Lexer fromBytes(ByteBuffer bytes) {
+        if (AsciiSource.isAscii(bytes)) {
+            return new Lexer(new AsciiSource(bytes));
+        }
+        return new Lexer(StandardCharsets.UTF_8.decode(bytes.duplicate()).toString());
     }
 
     public List<Token> scanTokens() {
+        ScanRecorder recorder = new ScanRecorder("scanTokens", countMetrics, pos, diagnostics);
         List<Token> tokens = new ArrayList<>();
-        while (!isAtEnd()) {
-            skipWhitespace();
-            if (isAtEnd()) break;
+        try {
+            while (true) {
+                Token t = nextToken();
+                tokens.add(t);
+                if (t.type == TokenType.EOF) break;
+            }
+        } catch (LexicalException e) {
+            recorder.fail(pos, tokens.size());
+            throw e;
+        }
+        recorder.done(pos, tokens);
+        return tokens;
+    }
 
-            char c = peek();
+    // === API de streaming ===
+
+    /**
+     * Devuelve el siguiente token y avanza. Al llegar al final devuelve EOF
+     * indefinidamente.
+     */
+    public Token nextToken() {
+        if (laCount == 0) return lexToken();
+        Token t = lookahead[laHead];
+        lookahead[laHead] = null;
+        laHead = (laHead + 1) & (MAX_LOOKAHEAD - 1);
+        laCount--;
+        return t;
+    }
 
-            int startLine = line;
-            int startCol = column;
+    /**
+     * Mira el token k-ésimo sin consumirlo; peekToken(0) es el que devolverá
+     * el próximo nextToken(). k debe ser menor que MAX_LOOKAHEAD.
+     */
+    public Token peekToken(int k) {
+        if (k < 0 || k >= MAX_LOOKAHEAD) {
+            throw new IllegalArgumentException("lookahead fuera de rango: " + k);
+        }
+        while (laCount <= k) {
+            lookahead[(laHead + laCount) & (MAX_LOOKAHEAD - 1)] = lexToken();
+            laCount++;
+        }
+        return lookahead[(laHead + k) & (MAX_LOOKAHEAD - 1)];
+    }
 
-            // Identificadores o palabras reservadas
-            if (isIdentifierStart(c)) {
-                String ident = readIdentifier();
-                TokenType type = KEYWORDS.contains(ident) ? TokenType.KEYWORD : TokenType.IDENTIFIER;
-                tokens.add(new Token(type, ident, startLine, startCol));
-                continue;
+    /**
+     * Escanea el resto de la entrada a un TokenBuffer compacto, sin crear un
+     * objeto Token por token. El buffer termina con EOF.
+     */
+    public TokenBuffer scanToBuffer() {
+        ScanRecorder recorder = new ScanRecorder("scanToBuffer", countMetrics, pos, diagnostics);
+        TokenBuffer buffer = new TokenBuffer(source, symbols, ((end - pos) >>> 3) + 16, pos, end);
+        try {
+            if (!drainLookahead(buffer)) {
+                TokenType type;
+                do {
+                    type = lexNext();
+                    buffer.add(type, tokStart, pos - tokStart, tokLine, tokColumn, tokId);
+                } while (type != TokenType.EOF);
             }
+        } catch (LexicalException e) {
+            recorder.fail(pos, buffer.size());
+            throw e;
+        }
+        recorder.done(pos, buffer);
+        return buffer;
+    }
 
-            // Números (enteros y decimales)
-            if (Character.isDigit(c)) {
-                String number = readNumber();
-                tokens.add(new Token(TokenType.NUMBER, number, startLine, startCol));
-                continue;
-            }
+    // Pasa al buffer los tokens que peekToken() ya dejó en el lookahead; true si entre ellos estaba EOF
+    private boolean drainLookahead(TokenBuffer buffer) {
+        while (laCount > 0) {
+            Token t = nextToken();
+            buffer.add(t.type, t.offset, t.length, t.line, t.column, t.id);
+            if (t.type == TokenType.EOF) return true;
+        }
+        return false;
+    }
 
-            // Paréntesis
-            if (c == '(' || c == ')') {
-                advance();
-                tokens.add(new Token(TokenType.PAREN, String.valueOf(c), startLine, startCol));
-                continue;
+    // === Escaneo paralelo ===
+
+    // Por debajo de dos trozos no compensa repartir
+    static final int MIN_CHUNK = 1 << 18;
+
+    /**
+     * Igual que scanToBuffer(), pero parte el resto de la entrada en trozos
+     * que terminan en un salto de línea, los escanea en paralelo y los cose
+     * en orden: las líneas de cada trozo se desplazan según los saltos de
+     * los anteriores (las columnas ya son correctas porque cada trozo empieza
+     * a principio de línea, y los offsets son absolutos) y los ids de
+     * identificadores se reasignan sobre la tabla de este lexer, con el mismo
+     * resultado que un escaneo secuencial.
+     *
+     * Cada trozo supone que empieza en el estado por defecto. Si el anterior
+     * termina a mitad de un token (ver endsInDefaultState()), esa suposición
+     * falla y los dos se vuelven a escanear juntos de forma secuencial.
+     *
+     * Los trozos se escanean en modo recuperación; sin él se lanza la
+     * excepción del primer error, como haría scanToBuffer().
+     */
+    public TokenBuffer scanToBufferParallel(int parallelism) {
+        return scanToBufferParallel(parallelism, Math.max(MIN_CHUNK, (end - pos) / (4 * Math.max(parallelism, 1))));
+    }
+
+    TokenBuffer scanToBufferParallel(int parallelism, int chunkSize) {
+        if (parallelism <= 1 || end - pos < 2L * chunkSize) return scanToBuffer();
+        ScanRecorder recorder = new ScanRecorder("scanToBufferParallel", countMetrics, pos, diagnostics);
+        TokenBuffer buffer = new TokenBuffer(source, symbols, ((end - pos) >>> 3) + 16, pos, end);
+        if (drainLookahead(buffer)) {
+            recorder.done(pos, buffer);
+            return buffer;
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int start = pos;
+        while (start < end) {
+            int cut = (int) Math.min((long) start + chunkSize, end);
+            while (cut < end && source.charAt(cut - 1) != '\n') cut++;
+            // el primero sigue la posición actual; el resto empieza a principio de línea
+            chunks.add(chunks.isEmpty() ? new Chunk(start, cut, line, column) : new Chunk(start, cut, 1, 1));
+            start = cut;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new ScanChunks(source, chunks, 0, chunks.size()));
+        } finally {
+            pool.shutdown();
+        }
+
+        int shift = 0; // líneas a sumar al trozo actual
+        Chunk prev = chunks.get(0);
+        try {
+            for (int i = 1; i < chunks.size(); i++) {
+                Chunk next = chunks.get(i);
+                if (prev.lexer.endsInDefaultState()) {
+                    shift = append(buffer, prev, shift);
+                    prev = next;
+                } else {
+                    // especulación fallida: next empezaba dentro de un token de prev
+                    prev = new Chunk(prev.start, next.end, prev.line, prev.column);
+                    prev.scan(source);
+                }
             }
+            append(buffer, prev, shift);
+        } catch (LexicalException e) {
+            recorder.fail(prev.end, buffer.size());
+            throw e;
+        }
 
-            // Llaves
-            if (c == '{' || c == '}') {
-                advance();
-                tokens.add(new Token(TokenType.BRACE, String.valueOf(c), startLine, startCol));
-                continue;
+        pos = prev.lexer.pos;
+        line = prev.lexer.line + shift;
+        column = prev.lexer.column;
+        buffer.add(TokenType.EOF, pos, 0, line, column, -1);
+        recorder.done(pos, buffer);
+        return buffer;
+    }
+
+    /**
+     * true si el escaneo terminó fuera de cualquier token, de modo que lo que
+     * sigue a end se puede escanear desde el estado por defecto. Con la
+     * gramática actual (sin tokens multilínea) siempre es así al agotar la
+     * región; un comentario o string multilínea sin cerrar en end debe hacer
+     * que devuelva false.
+     */
+    boolean endsInDefaultState() {
+        return pos >= end;
+    }
+
+    // Copia los tokens (sin EOF) y errores del trozo; devuelve el desplazamiento de líneas del siguiente
+    private int append(TokenBuffer buffer, Chunk chunk, int shift) {
+        SymbolTable local = chunk.lexer.symbols;
+        int[] ids = new int[local.size()];
+        for (int i = 0; i < ids.length; i++) ids[i] = symbols.intern(local.name(i));
+
+        TokenBuffer tokens = chunk.tokens;
+        for (int i = 0, n = tokens.size() - 1; i < n; i++) {
+            TokenType type = tokens.type(i);
+            int id = type == TokenType.IDENTIFIER ? ids[tokens.id(i)] : tokens.id(i);
+            buffer.add(type, tokens.start(i), tokens.length(i), tokens.line(i) + shift, tokens.column(i), id);
+        }
+        for (Diagnostic d : chunk.lexer.diagnostics) {
+            Diagnostic moved = new Diagnostic(d.offset, d.line + shift, d.column, d.ch);
+            LexerEvents.error(moved, recovery);
+            if (!recovery) throw new LexicalException(render(moved), moved);
+            diagnostics.add(moved);
+        }
+        return shift + chunk.lexer.line - 1;
+    }
+
+    /** Región de la entrada y su resultado. */
+    private static final class Chunk {
+        final int start;
+        final int end;
+        final int line;
+        final int column;
+        Lexer lexer;
+        TokenBuffer tokens;
+
+        Chunk(int start, int end, int line, int column) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+            this.column = column;
+        }
+
+        void scan(CharSequence source) {
+            lexer = new Lexer(source, start, end, line, column, new SymbolTable());
+            lexer.recovery = true;
+            lexer.countMetrics = false;
+            tokens = lexer.scanToBuffer();
+        }
+    }
+
+    // Divide la lista de trozos a la mitad hasta llegar a uno por tarea
+    private static final class ScanChunks extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CharSequence source;
+        private final List<Chunk> chunks;
+        private final int lo;
+        private final int hi;
+
+        ScanChunks(CharSequence source, List<Chunk> chunks, int lo, int hi) {
+            this.source = source;
+            this.chunks = chunks;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1) {
+                if (hi > lo) chunks.get(lo).scan(source);
+                return;
             }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ScanChunks(source, chunks, lo, mid), new ScanChunks(source, chunks, mid, hi));
+        }
+    }
+
+    // Escanea un token directamente desde la fuente (sin pasar por el lookahead)
+    private Token lexToken() {
+        TokenType type = lexNext();
+        String lexeme = type == TokenType.NUMBER ? null : Token.canonicalLexeme(type, tokId, symbols);
+        return new Token(type, source, tokStart, pos - tokStart, tokLine, tokColumn, tokId, lexeme);
+    }
 
-            // Operadores dobles (==, !=, <=, >=)
-            if (!isAtEnd() && !isAtEndNext()) {
-                String two = lookahead2();
-                if (DOUBLE_SYMBOLS.contains(two)) {
-                    advance(); // consume first
-                    advance(); // consume second
-                    tokens.add(new Token(TokenType.SYMBOL, two, startLine, startCol));
-                    continue;
+    /**
+     * Núcleo del lexer: reconoce un token y deja su inicio y posición en
+     * tokStart/tokLine/tokColumn; el final es la posición actual.
+     */
+    private TokenType lexNext() {
+        while (!isAtEnd()) {
+            char c = peek();
+
+            tokStart = pos;
+            tokLine = line;
+            tokColumn = column;
+            tokId = -1;
+
+            byte cls = charClass(c);
+            switch (cls) {
+                case CC_WHITESPACE:
+                    skipWhitespace();
+                    break;
+
+                // Identificadores o palabras reservadas
+                case CC_IDENT:
+                    readIdentifier();
+                    tokId = KEYWORDS.lookup(source, tokStart, pos);
+                    if (tokId >= 0) return TokenType.KEYWORD;
+                    tokId = symbols.intern(source, tokStart, pos);
+                    return TokenType.IDENTIFIER;
+
+                // Números (enteros y decimales)
+                case CC_DIGIT:
+                    return readNumber() ? TokenType.NUMBER : TokenType.ERROR;
+
+                // Paréntesis y llaves
+                case CC_PAREN:
+                case CC_BRACE: {
+                    Punct p = Punct.single(c);
+                    advance();
+                    tokId = p.ordinal();
+                    return p.type;
                 }
-            }
 
-            // Símbolos de un carácter
-            if (SINGLE_SYMBOLS.contains(c)) {
-                advance();
-                tokens.add(new Token(TokenType.SYMBOL, String.valueOf(c), startLine, startCol));
-                continue;
+                // Operadores dobles (==, !=, <=, >=) y luego símbolos de un carácter
+                case CC_SYMBOL:
+                case CC_OPERATOR: {
+                    Punct p = isAtEndNext() ? null : Punct.pair(c, peekNext());
+                    if (p != null) {
+                        advance(); // consume first
+                        advance(); // consume second
+                    } else if (cls == CC_SYMBOL) {
+                        p = Punct.single(c);
+                        advance();
+                    } else {
+                        errorInvalidChar(c, tokStart, tokLine, tokColumn);
+                        advance();
+                        return TokenType.ERROR;
+                    }
+                    tokId = p.ordinal();
+                    return p.type;
+                }
+
+                // Si llegamos aquí, es un carácter inválido -> detener con error
+                // (o, en modo recuperación, saltarlo como token ERROR)
+                default:
+                    errorInvalidChar(c, tokStart, tokLine, tokColumn);
+                    skipInvalid();
+                    return TokenType.ERROR;
             }
+        }
+
+        tokStart = pos;
+        tokLine = line;
+        tokColumn = column;
+        tokId = -1;
+        return TokenType.EOF;
+    }
+
+    /**
+     * Activa el modo recuperación: en vez de lanzar LexicalException con el
+     * primer carácter inválido, se registra un Diagnostic, se emite un token
+     * ERROR y se sigue escaneando.
+     */
+    public void setRecoveryMode(boolean recovery) {
+        this.recovery = recovery;
+    }
+
+    /** Errores registrados en modo recuperación, en orden de aparición. */
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    /** Mensaje completo de un diagnóstico, con la línea y un puntero a la columna. */
+    public String render(Diagnostic d) {
+        return formatError(d, lineText(d.line));
+    }
+
+    static String formatError(Diagnostic d, String lineText) {
+        return formatError(d, lineText, d.column);
+    }
 
-            // Si llegamos aquí, es un carácter inválido -> detener con error
-            errorInvalidChar(c, startLine, startCol);
+    // pointerCol: columna del '^' dentro de lineText (difiere si la línea viene recortada)
+    static String formatError(Diagnostic d, String lineText, int pointerCol) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("❌ Error léxico: carácter inválido '")
+          .append(printable(d.ch)).append("' en línea ").append(d.line)
+          .append(", columna ").append(d.column).append("\n");
+        sb.append(lineText).append("\n").append(makePointer(pointerCol));
+        return sb.toString();
+    }
+
+    /** Tabla de identificadores vistos hasta ahora; los ids coinciden con Token.symbolId(). */
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    // === Relexeo incremental ===
+
+    /**
+     * Tokens del texto tras una edición (reemplazar deleted caracteres en
+     * offset por inserted), reutilizando los de previous: se vuelve a lexear
+     * desde el final del último token que termina antes de la edición hasta
+     * que un token nuevo empieza, pasada la edición, donde empezaba uno
+     * viejo. A partir de ahí el texto es el mismo y el lexer parte del mismo
+     * estado, así que el resto se copia desplazando offsets, líneas y, en esa
+     * línea, columnas, sin lexear.
+     *
+     * previous tiene que venir de Lexer (offsets en chars); el resultado
+     * comparte su SymbolTable, así que los ids de identificadores se
+     * mantienen. Se lexea en modo recuperación: los errores quedan como
+     * tokens ERROR.
+     */
+    public static TokenBuffer relex(TokenBuffer previous, int offset, int deleted, CharSequence inserted) {
+        CharSequence old = previous.source();
+        if (offset < 0 || deleted < 0 || offset + deleted > old.length()) {
+            throw new IllegalArgumentException("edición fuera de rango: " + offset + "+" + deleted);
         }
+        String text = new StringBuilder(old.length() - deleted + inserted.length())
+            .append(old, 0, offset).append(inserted).append(old, offset + deleted, old.length()).toString();
+        return relex(previous, text, offset, deleted, inserted.length());
+    }
 
-        tokens.add(new Token(TokenType.EOF, "", line, column));
-        return tokens;
+    /** Igual, cuando quien edita ya tiene el texto nuevo completo. */
+    public static TokenBuffer relex(TokenBuffer previous, CharSequence text, int offset, int deleted, int inserted) {
+        int delta = inserted - deleted;
+        int n = previous.size();
+        if (offset < 0 || deleted < 0 || inserted < 0 || offset + deleted > previous.source().length()
+                || text.length() != previous.source().length() + delta) {
+            throw new IllegalArgumentException("edición fuera de rango: " + offset + "+" + deleted + "/" + inserted);
+        }
+
+        // Primer token afectado: el primero que no termina antes de offset. Uno
+        // que termina justo en offset también, porque el lexer mira un carácter
+        // más allá (1. seguido de dígito, = seguido de =).
+        int lo = 0;
+        int hi = n - 1; // EOF termina al final, así que siempre cumple
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (previous.start(mid) + previous.length(mid) < offset) lo = mid + 1;
+            else hi = mid;
+        }
+        int first = lo;
+        Lexer lexer;
+        if (first == 0) {
+            lexer = new Lexer(text, 0, text.length(), 1, 1, previous.symbols());
+        } else {
+            int p = first - 1; // ningún token cruza líneas: su final está en la misma línea
+            lexer = new Lexer(text, previous.start(p) + previous.length(p), text.length(),
+                              previous.line(p), previous.column(p) + previous.length(p), previous.symbols());
+        }
+        lexer.recovery = true;
+
+        TokenBuffer result = new TokenBuffer(text, previous.symbols(), n + 16);
+        result.addRange(previous, 0, first, 0, 0, 0, 0);
+        int editEnd = offset + inserted;
+        int k = first; // candidato de previous para resincronizar
+        while (true) {
+            TokenType type = lexer.lexNext();
+            int start = lexer.tokStart;
+            if (type != TokenType.EOF && start >= editEnd) {
+                int oldStart = start - delta;
+                while (k < n && previous.start(k) < oldStart) k++;
+                if (k < n - 1 && previous.start(k) == oldStart) {
+                    int oldLine = previous.line(k);
+                    result.addRange(previous, k, n, delta, lexer.tokLine - oldLine,
+                                    lexer.tokColumn - previous.column(k), oldLine);
+                    return result;
+                }
+            }
+            result.add(type, start, lexer.pos - start, lexer.tokLine, lexer.tokColumn, lexer.tokId);
+            if (type == TokenType.EOF) return result;
+        }
     }
 
     // === Helpers de lectura ===
 
     private boolean isAtEnd() {
-        return pos >= source.length();
+        return pos >= end;
     }
 
     private boolean isAtEndNext() {
-        return pos + 1 >= source.length();
+        return pos + 1 >= end;
     }
 
     private char peek() {
@@ -157,9 +732,40 @@ public class Lexer {
     }
 
     private void skipWhitespace() {
+        // un blanco suelto entre tokens no compensa leer 8 bytes; con dos o más
+        // se avanza de 8 en 8 y los saltos de línea se cuentan por máscara
+        if (words != null && !isAtEndNext() && peekNext() <= ' ') {
+            if (Swar.VECTOR) {
+                while (pos + VectorScan.LENGTH <= end) {
+                    int r = VectorScan.whitespace(words, wordsBase + pos);
+                    int n = VectorScan.run(r);
+                    if (VectorScan.newlines(r) != 0) {
+                        line += VectorScan.newlines(r);
+                        column = n - VectorScan.lastNewline(r);
+                    } else {
+                        column += n;
+                    }
+                    pos += n;
+                    if (n < VectorScan.LENGTH) return;
+                }
+            }
+            while (pos + 8 <= end) {
+                long w = words.getLong(wordsBase + pos);
+                int n = Swar.run(Swar.whitespace(w));
+                long nl = Swar.prefix(Swar.newlines(w), n);
+                if (nl != 0) {
+                    line += Long.bitCount(nl);
+                    column = n - Swar.last(nl);
+                } else {
+                    column += n;
+                }
+                pos += n;
+                if (n < 8) return;
+            }
+        }
         while (!isAtEnd()) {
             char c = peek();
-            if (c == ' ' || c == '\r' || c == '\t' || c == '\n') {
+            if (c < 128 && CHAR_CLASS[c] == CC_WHITESPACE) {
                 advance();
             } else {
                 break;
@@ -167,72 +773,123 @@ public class Lexer {
         }
     }
 
-    private boolean isIdentifierStart(char c) {
-        return Character.isLetter(c) || c == '_';
+    // Clase de un carácter: tabla para ASCII, Character.* para el resto
+    static byte charClass(char c) {
+        if (c < 128) return CHAR_CLASS[c];
+        if (Character.isLetter(c)) return CC_IDENT;
+        if (Character.isDigit(c)) return CC_DIGIT;
+        return CC_INVALID;
     }
 
-    private boolean isIdentifierPart(char c) {
-        return Character.isLetterOrDigit(c) || c == '_';
+    private static boolean isDigit(char c) {
+        return charClass(c) == CC_DIGIT;
     }
 
-    private String readIdentifier() {
-        int start = pos;
+    private static boolean isIdentifierPart(char c) {
+        byte cls = charClass(c);
+        return cls == CC_IDENT || cls == CC_DIGIT;
+    }
+
+    private void readIdentifier() {
         advance(); // ya sabemos que el primero es válido
+        if (words != null) {
+            // fuente ASCII: el primer byte que no es de identificador lo termina
+            if (Swar.VECTOR) {
+                while (pos + VectorScan.LENGTH <= end) {
+                    int n = VectorScan.identifier(words, wordsBase + pos);
+                    pos += n;
+                    column += n;
+                    if (n < VectorScan.LENGTH) return;
+                }
+            }
+            while (pos + 8 <= end) {
+                int n = Swar.run(Swar.identifier(words.getLong(wordsBase + pos)));
+                pos += n;
+                column += n;
+                if (n < 8) return;
+            }
+        }
         while (!isAtEnd() && isIdentifierPart(peek())) {
             advance();
         }
-        return source.substring(start, pos);
     }
 
-    private String readNumber() {
-        int start = pos;
+    // false si el número está mal formado (solo posible en modo recuperación)
+    private boolean readNumber() {
         boolean seenDot = false;
 
         while (!isAtEnd()) {
             char c = peek();
-            if (Character.isDigit(c)) {
+            if (isDigit(c)) {
                 advance();
             } else if (c == '.' && !seenDot) {
                 // permitir un solo punto decimal
                 seenDot = true;
                 advance();
                 // opcional: exigir al menos un dígito después del punto
-                if (!isAtEnd() && !Character.isDigit(peek())) {
-                    errorInvalidChar(peek(), line, column);
+                if (!isAtEnd() && !isDigit(peek())) {
+                    errorInvalidChar(peek(), pos, line, column);
+                    // el carácter entra en el token ERROR para que lexNext() no lo informe
+                    // otra vez; un blanco no, que se salta sin error (y ningún token cruza líneas)
+                    if (charClass(peek()) != CC_WHITESPACE) skipInvalid();
+                    return false;
                 }
             } else {
                 break;
             }
         }
-        return source.substring(start, pos);
+        return true;
     }
 
-    private String lookahead2() {
-        if (isAtEnd() || isAtEndNext()) return "";
-        return "" + peek() + peekNext();
+    // Salta un carácter inválido ya informado; un par sustituto es un solo
+    // code point y por tanto un solo error, como en Utf8Lexer
+    private void skipInvalid() {
+        char c = peek();
+        advance();
+        if (Character.isHighSurrogate(c) && !isAtEnd() && Character.isLowSurrogate(peek())) advance();
     }
 
-    private void errorInvalidChar(char c, int errLine, int errCol) {
-        String lineText = (errLine - 1 >= 0 && errLine - 1 < lines.size()) ? lines.get(errLine - 1) : "";
-        String pointer = makePointer(errCol);
+    // Lanza el error o, en modo recuperación, solo lo registra
+    private void errorInvalidChar(char c, int errOffset, int errLine, int errCol) {
+        Diagnostic d = new Diagnostic(errOffset, errLine, errCol, c);
+        if (countMetrics) LexerEvents.error(d, recovery); // los trozos los emite append() con la línea ya corregida
+        if (recovery) {
+            diagnostics.add(d);
+            return;
+        }
+        throw new LexicalException(render(d), d);
+    }
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("❌ Error léxico: carácter inválido '")
-          .append(printable(c)).append("' en línea ").append(errLine)
-          .append(", columna ").append(errCol).append("\n");
-        sb.append(lineText).append("\n").append(pointer);
+    // Texto de la línea (desde 1) sin el '\n', recortado de la fuente
+    private String lineText(int lineNo) {
+        if (lineStarts == null) lineStarts = computeLineStarts(source);
+        if (lineNo < 1 || lineNo > lineStarts.length) return "";
+        int start = lineStarts[lineNo - 1];
+        int end = lineNo < lineStarts.length ? lineStarts[lineNo] - 1 : source.length();
+        return source.subSequence(start, end).toString();
+    }
 
-        throw new LexicalException(sb.toString());
+    private static int[] computeLineStarts(CharSequence s) {
+        int count = 1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') count++;
+        }
+        int[] starts = new int[count];
+        int n = 1;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '\n') starts[n++] = i + 1;
+        }
+        return starts;
     }
 
-    private String makePointer(int col) {
+    private static String makePointer(int col) {
         StringBuilder p = new StringBuilder();
         for (int i = 1; i < col; i++) p.append(' ');
         p.append('^');
         return p.toString();
     }
 
-    private String printable(char c) {
+    static String printable(char c) {
         if (Character.isISOControl(c)) {
             return String.format("\\u%04x", (int)c);
         }
@@ -241,29 +898,6 @@ public class Lexer {
 
     // === Programa de ejemplo ===
     public static void main(String[] args) {
-        System.out.println("Pega tu código. Termina con una línea que contenga solo: EOF");
-        Scanner sc = new Scanner(System.in);
-        StringBuilder sb = new StringBuilder();
-        while (sc.hasNextLine()) {
-            String line = sc.nextLine();
-            if (line.equals("EOF")) break;
-            sb.append(line).append('\n');
-        }
-        String code = sb.toString();
-
-        try {
-            Lexer lexer = new Lexer(code);
-            List<Token> tokens = lexer.scanTokens();
-            System.out.println("\n=== TOKENS ===");
-            for (Token t : tokens) {
-                if (t.type != TokenType.EOF) {
-                    System.out.println(t);
-                }
-            }
-        } catch (LexicalException e) {
-            System.err.println(e.getMessage());
-            // código de salida opcional distinto de 0
-            System.exit(1);
-        }
+        LexerCli.main(args);
     }
 }
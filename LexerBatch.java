@@ -0,0 +1,132 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+/**
+ * Lexeo por lotes: recorre un árbol de directorios y lexea los archivos en
+ * paralelo sobre un ForkJoinPool (work-stealing), en modo recuperación para
+ * recoger todos los errores de cada archivo. Los resultados salen en el
+ * orden de las rutas, independientemente de qué hilo terminó antes.
+ *
+ * Con una TokenCache, los archivos ya lexeados con el mismo contenido se
+ * leen de ella. La caché solo guarda archivos sin errores, así que uno con
+ * errores se vuelve a lexear en modo recuperación para listarlos.
+ */
+final class LexerBatch {
+
+    /** Resultado de un archivo: tokens (sin EOF), errores ya formateados o fallo de E/S. */
+    static final class FileResult {
+        final Path path;
+        final long bytes;
+        final int tokens;
+        final List<String> errors;
+        final IOException failure;
+
+        FileResult(Path path, long bytes, int tokens, List<String> errors, IOException failure) {
+            this.path = path;
+            this.bytes = bytes;
+            this.tokens = tokens;
+            this.errors = errors;
+            this.failure = failure;
+        }
+
+        boolean ok() {
+            return failure == null && errors.isEmpty();
+        }
+    }
+
+    private final int parallelism;
+    private final TokenCache cache; // null = sin caché
+
+    LexerBatch(int parallelism) {
+        this(parallelism, null);
+    }
+
+    LexerBatch(int parallelism, TokenCache cache) {
+        this.parallelism = parallelism;
+        this.cache = cache;
+    }
+
+    /** Archivos regulares bajo root cuyo nombre termina en suffix ("" = todos), ordenados. */
+    static List<Path> collect(Path root, String suffix) throws IOException {
+        try (Stream<Path> walk = Files.walk(root)) {
+            return walk.filter(Files::isRegularFile)
+                       .filter(p -> p.getFileName().toString().endsWith(suffix))
+                       .sorted()
+                       .collect(Collectors.toList());
+        }
+    }
+
+    List<FileResult> run(Path root, String suffix) throws IOException {
+        return run(collect(root, suffix));
+    }
+
+    List<FileResult> run(List<Path> files) {
+        FileResult[] results = new FileResult[files.size()];
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new LexRange(files, cache, results, 0, files.size()));
+        } finally {
+            pool.shutdown();
+        }
+        return Arrays.asList(results);
+    }
+
+    static FileResult lexFile(Path path) {
+        return lexFile(path, null);
+    }
+
+    static FileResult lexFile(Path path, TokenCache cache) {
+        long bytes = 0;
+        try {
+            bytes = Files.size(path);
+            if (cache != null) {
+                try {
+                    List<Token> tokens = cache.tokens(path);
+                    return new FileResult(path, bytes, tokens.size() - 1, Collections.emptyList(), null);
+                } catch (LexicalException e) {
+                    // no está en la caché ni se guardó: se lexea abajo para recoger todos los errores
+                }
+            }
+            Lexer lexer = Lexer.fromPath(path);
+            lexer.setRecoveryMode(true);
+            TokenBuffer tokens = lexer.scanToBuffer();
+            List<String> errors = new ArrayList<>(lexer.diagnostics().size());
+            for (Diagnostic d : lexer.diagnostics()) errors.add(lexer.render(d));
+            return new FileResult(path, bytes, tokens.size() - 1, errors, null);
+        } catch (IOException e) {
+            return new FileResult(path, bytes, 0, Collections.emptyList(), e);
+        }
+    }
+
+    // Divide el rango de archivos a la mitad hasta llegar a uno por tarea
+    private static final class LexRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final TokenCache cache;
+        private final FileResult[] results;
+        private final int lo;
+        private final int hi;
+
+        LexRange(List<Path> files, TokenCache cache, FileResult[] results, int lo, int hi) {
+            this.files = files;
+            this.cache = cache;
+            this.results = results;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= 1) {
+                if (hi > lo) results[lo] = lexFile(files.get(lo), cache);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new LexRange(files, cache, results, lo, mid), new LexRange(files, cache, results, mid, hi));
+        }
+    }
+}
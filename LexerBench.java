@@ -0,0 +1,138 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Benchmark del lexer sin dependencias: genera corpus de varios tamaños y
+ * mezclas de tokens (CorpusGenerator), calienta el JIT y mide cada variante
+ * de escaneo. Para decidir si un cambio mejora o empeora está el módulo
+ * jmh (LexerJmh), que mide las mismas operaciones (scan y corpus) con un
+ * fork por combinación; esto queda como comprobación rápida sin Maven.
+ *
+ *   java LexerBench [-s KB,...] [-m mezcla,...] [-v variante,...] [-w N] [-i N]
+ *
+ *   -s   tamaños del corpus en KB (por defecto 64,1024,16384)
+ *   -m   mezclas de CorpusGenerator: mixed, ident, number, punct, space
+ *        (por defecto todas)
+ *   -v   variantes: tokens (scanTokens), buffer (scanToBuffer), ascii
+ *        (scanToBuffer sobre bytes con fromBytes), utf8 (Utf8Lexer),
+ *        stream (StreamingLexer) (por defecto todas)
+ *   -w   iteraciones de calentamiento (por defecto 5)
+ *   -i   iteraciones medidas (por defecto 10)
+ *
+ * Por cada combinación imprime la mediana de MB/s y tokens/s y los bytes
+ * reservados por operación y por token (ThreadMXBean de HotSpot, lo mismo
+ * que mide gc.alloc.rate.norm del perfilador GC de JMH). Un mismo proceso
+ * ejecuta todas las combinaciones y el perfil del JIT de unas contamina las
+ * siguientes: para comparar dos versiones del lexer, JMH, o al menos fijar
+ * -s/-m/-v y lanzar cada una en su propia JVM.
+ */
+final class LexerBench {
+    private static final String[] VARIANTS = {"tokens", "buffer", "ascii", "utf8", "stream"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Resultado de cada operación, para que el JIT no pueda descartar el trabajo
+    private static volatile long sink;
+
+    private LexerBench() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = {64, 1024, 16384};
+        String[] mixes = CorpusGenerator.MIXES;
+        String[] variants = VARIANTS;
+        int warmup = 5;
+        int iterations = 10;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 == args.length) {
+                usage("falta el valor de " + arg);
+                return;
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-s": sizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray(); break;
+                case "-m": mixes = value.split(","); break;
+                case "-v": variants = value.split(","); break;
+                case "-w": warmup = Integer.parseInt(value); break;
+                case "-i": iterations = Math.max(1, Integer.parseInt(value)); break;
+                default:
+                    usage("opción desconocida: " + arg);
+                    return;
+            }
+        }
+
+        System.out.printf("%-7s %-7s %8s %10s %12s %12s %10s%n",
+            "mezcla", "variante", "KB", "MB/s", "tokens/s", "B/op", "B/token");
+        for (String mix : mixes) {
+            for (int kb : sizes) {
+                String text = corpus(mix, kb);
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                for (String variant : variants) {
+                    run(mix, variant, text, bytes, warmup, iterations);
+                }
+            }
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Uso: java LexerBench [-s KB,...] [-m mezcla,...] [-v variante,...] [-w N] [-i N]");
+        System.exit(2);
+    }
+
+    private static void run(String mix, String variant, String text, byte[] bytes, int warmup, int iterations)
+            throws IOException {
+        for (int i = 0; i < warmup; i++) sink += scan(variant, text, bytes);
+
+        long[] nanos = new long[iterations];
+        long tokens = 0;
+        long allocated = 0;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < iterations; i++) {
+            long a0 = THREADS.getThreadAllocatedBytes(thread);
+            long t0 = System.nanoTime();
+            tokens = scan(variant, text, bytes);
+            nanos[i] = System.nanoTime() - t0;
+            allocated += THREADS.getThreadAllocatedBytes(thread) - a0;
+            sink += tokens;
+        }
+        Arrays.sort(nanos);
+        double secs = Math.max(nanos[iterations / 2], 1) / 1e9;
+        long perOp = allocated / iterations;
+        System.out.printf("%-7s %-7s %8d %10.1f %12.0f %12d %10.1f%n",
+            mix, variant, bytes.length / 1024, bytes.length / secs / 1e6, tokens / secs,
+            perOp, (double) perOp / Math.max(tokens, 1));
+    }
+
+    // Corpus estándar de los benchmarks: semilla fija, así todos miden el mismo texto
+    static String corpus(String mix, int kb) {
+        return CorpusGenerator.mix(mix, 42).generate(kb * 1024);
+    }
+
+    // Una operación: escanea la entrada entera y devuelve el número de tokens (con EOF)
+    static long scan(String variant, String text, byte[] bytes) throws IOException {
+        switch (variant) {
+            case "tokens":
+                return new Lexer(text).scanTokens().size();
+            case "buffer":
+                return new Lexer(text).scanToBuffer().size();
+            case "ascii":
+                return Lexer.fromBytes(ByteBuffer.wrap(bytes)).scanToBuffer().size();
+            case "utf8":
+                return new Utf8Lexer(bytes).scanToBuffer().size();
+            case "stream": {
+                StreamingLexer lexer = new StreamingLexer(new StringReader(text));
+                long n = 1;
+                while (lexer.nextToken().type != TokenType.EOF) n++;
+                return n;
+            }
+            default:
+                throw new IllegalArgumentException("variante desconocida: " + variant);
+        }
+    }
+}
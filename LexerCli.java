@@ -0,0 +1,331 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Front end de línea de comandos del lexer.
+ *
+ *   java Lexer [opciones] [archivo...]
+ *
+ * Sin archivos lee la entrada estándar de una vez (o, en una consola, línea
+ * a línea hasta una línea con solo EOF, como antes). La salida va por un
+ * único writer con buffer grande.
+ *
+ *   -c, --compact   una línea por token: línea TAB columna TAB tipo TAB lexema
+ *                   (con varios archivos, cada uno empieza con "# archivo")
+ *   -r, --recover   informar de todos los errores en vez de parar en el primero
+ *   -t, --time      tiempos y throughput por archivo en stderr
+ *   -q, --quiet     no imprimir tokens (útil con --time)
+ *   -s, --split     lexear cada archivo en trozos paralelos (con --jobs hilos)
+ *
+ * Si un argumento es un directorio se lexean en paralelo todos sus archivos
+ * (ver LexerBatch) y se imprime una línea por archivo con tokens y errores:
+ *
+ *   -j, --jobs N    hilos para el modo directorio o --split (por defecto, los núcleos)
+ *   -e, --ext EXT   en el modo directorio, solo archivos que terminan en EXT
+ *
+ * Los archivos (también los de un directorio) pueden pasar por una
+ * TokenCache en disco: un archivo sin cambios no se vuelve a lexear. Solo
+ * se guardan archivos sin errores; los demás se lexean como sin caché.
+ *
+ *   --cache DIR       directorio de la caché
+ *   --cache-size MB   tamaño máximo de la caché (por defecto 256)
+ *
+ * Con java --add-modules jdk.incubator.vector ... los archivos (no la
+ * entrada estándar) se recorren de 16 a 32 bytes a la vez (ver VectorScan).
+ */
+public class LexerCli {
+    private static final int OUT_BUFFER = 1 << 16;
+
+    private boolean compact = false;
+    private boolean recover = false;
+    private boolean timing = false;
+    private boolean quiet = false;
+    private boolean split = false;
+    private int jobs = Runtime.getRuntime().availableProcessors();
+    private String ext = "";
+    private String cacheDir = null;
+    private long cacheMegabytes = 256;
+    private TokenCache cache = null;
+    private final List<String> files = new ArrayList<>();
+
+    private final Writer out = new BufferedWriter(
+        new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), Charset.defaultCharset()), OUT_BUFFER);
+
+    public static void main(String[] args) {
+        LexerCli cli = new LexerCli();
+        int status;
+        try {
+            status = cli.run(args);
+        } catch (IOException e) {
+            System.err.println("Error de E/S: " + e.getMessage());
+            status = 2;
+        }
+        if (status != 0) System.exit(status);
+    }
+
+    int run(String[] args) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-c": case "--compact": compact = true; break;
+                case "-r": case "--recover": recover = true; break;
+                case "-t": case "--time": timing = true; break;
+                case "-q": case "--quiet": quiet = true; break;
+                case "-s": case "--split": split = true; break;
+                case "-j": case "--jobs":
+                case "-e": case "--ext":
+                case "--cache": case "--cache-size":
+                    if (i + 1 == args.length) {
+                        System.err.println("Falta el valor de " + arg);
+                        usage();
+                        return 2;
+                    }
+                    if (arg.equals("-e") || arg.equals("--ext")) {
+                        ext = args[++i];
+                    } else if (arg.equals("--cache")) {
+                        cacheDir = args[++i];
+                    } else if (arg.equals("--cache-size")) {
+                        try {
+                            cacheMegabytes = Long.parseLong(args[++i]);
+                        } catch (NumberFormatException e) {
+                            cacheMegabytes = -1;
+                        }
+                        if (cacheMegabytes <= 0) {
+                            System.err.println("Tamaño de caché inválido: " + args[i]);
+                            return 2;
+                        }
+                    } else {
+                        try {
+                            jobs = Math.max(1, Integer.parseInt(args[++i]));
+                        } catch (NumberFormatException e) {
+                            System.err.println("Número de hilos inválido: " + args[i]);
+                            return 2;
+                        }
+                    }
+                    break;
+                case "-h": case "--help":
+                    usage();
+                    return 0;
+                default:
+                    if (arg.startsWith("-") && !arg.equals("-")) {
+                        System.err.println("Opción desconocida: " + arg);
+                        usage();
+                        return 2;
+                    }
+                    files.add(arg);
+            }
+        }
+
+        if (cacheDir != null) cache = new TokenCache(Paths.get(cacheDir), cacheMegabytes << 20);
+
+        int status = 0;
+        try {
+            if (files.isEmpty()) {
+                status = System.console() != null ? lexInteractive() : lex("<stdin>", readAll(System.in));
+            } else {
+                for (String f : files) {
+                    if (files.size() > 1 && !quiet) out.write(compact ? "# " + f + "\n" : "\n=== " + f + " ===\n");
+                    int s;
+                    if (f.equals("-")) {
+                        s = lex("<stdin>", readAll(System.in));
+                    } else if (Files.isDirectory(Paths.get(f))) {
+                        s = lexDirectory(Paths.get(f));
+                    } else {
+                        s = lexFile(Paths.get(f));
+                    }
+                    status = Math.max(status, s);
+                }
+            }
+        } finally {
+            out.flush();
+        }
+        if (cache != null && timing) {
+            System.err.printf("caché %s: %d aciertos, %d fallos%n", cacheDir, cache.hits(), cache.misses());
+        }
+        return status;
+    }
+
+    private void usage() {
+        System.err.println("Uso: java Lexer [-c|--compact] [-r|--recover] [-t|--time] [-q|--quiet] [-s|--split]"
+            + " [-j|--jobs N] [-e|--ext EXT] [--cache DIR] [--cache-size MB] [archivo|directorio...]");
+    }
+
+    // Modo interactivo original: pegar código y terminar con una línea "EOF"
+    private int lexInteractive() throws IOException {
+        System.out.println("Pega tu código. Termina con una línea que contenga solo: EOF");
+        BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, Charset.defaultCharset()));
+        StringBuilder sb = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.equals("EOF")) break;
+            sb.append(line).append('\n');
+        }
+        return lex("<stdin>", new Lexer(sb.toString()), sb.length());
+    }
+
+    private int lexFile(Path path) throws IOException {
+        if (cache != null) {
+            long t0 = System.nanoTime();
+            List<Token> tokens;
+            try {
+                tokens = cache.tokens(path);
+            } catch (LexicalException e) {
+                tokens = null; // con errores no se guarda: se lexea abajo para informar de ellos
+            }
+            if (tokens != null) {
+                long t1 = System.nanoTime();
+                if (!quiet) write(tokens);
+                if (timing) {
+                    System.err.printf("%s: %d tokens, caché %.3f ms, salida %.3f ms%n",
+                        path, tokens.size() - 1, (t1 - t0) / 1e6, (System.nanoTime() - t1) / 1e6);
+                }
+                return 0;
+            }
+        }
+        long t0 = System.nanoTime();
+        Lexer lexer = Lexer.fromPath(path);
+        long size = Files.size(path);
+        if (timing) System.err.printf("%s: mapeo %.3f ms%n", path, (System.nanoTime() - t0) / 1e6);
+        return lex(path.toString(), lexer, size);
+    }
+
+    // Modo directorio: una línea por archivo (ruta, tokens, errores) y los errores en stderr
+    private int lexDirectory(Path root) throws IOException {
+        long t0 = System.nanoTime();
+        List<Path> paths = LexerBatch.collect(root, ext);
+        List<LexerBatch.FileResult> results = new LexerBatch(jobs, cache).run(paths);
+        long t1 = System.nanoTime();
+
+        int status = 0;
+        long bytes = 0;
+        long tokens = 0;
+        int errors = 0;
+        for (LexerBatch.FileResult r : results) {
+            bytes += r.bytes;
+            tokens += r.tokens;
+            errors += r.errors.size();
+            if (!quiet) {
+                out.write(r.path.toString());
+                out.write('\t');
+                out.write(Integer.toString(r.tokens));
+                out.write('\t');
+                out.write(Integer.toString(r.errors.size()));
+                out.write('\n');
+            }
+            if (!r.ok()) {
+                out.flush();
+                status = 1;
+                if (r.failure != null) System.err.println(r.path + ": error de E/S: " + r.failure.getMessage());
+                for (String e : r.errors) System.err.println(r.path + ":\n" + e);
+            }
+        }
+        if (timing) {
+            double secs = Math.max(t1 - t0, 1) / 1e9;
+            System.err.printf("%s: %d archivos, %d tokens, %d bytes, %d errores, %.3f ms con %d hilos (%.1f MB/s)%n",
+                root, results.size(), tokens, bytes, errors, (t1 - t0) / 1e6, jobs, bytes / secs / 1e6);
+        }
+        return status;
+    }
+
+    private int lex(String name, ByteBuffer bytes) throws IOException {
+        return lex(name, Lexer.fromBytes(bytes), bytes.remaining());
+    }
+
+    private int lex(String name, Lexer lexer, long size) throws IOException {
+        lexer.setRecoveryMode(recover);
+        long t0 = System.nanoTime();
+        TokenBuffer tokens;
+        try {
+            tokens = split ? lexer.scanToBufferParallel(jobs) : lexer.scanToBuffer();
+        } catch (LexicalException e) {
+            out.flush();
+            System.err.println(e.getMessage());
+            return 1;
+        }
+        long t1 = System.nanoTime();
+
+        if (!quiet) write(tokens);
+        long t2 = System.nanoTime();
+
+        if (!lexer.diagnostics().isEmpty()) out.flush();
+        for (Diagnostic d : lexer.diagnostics()) {
+            System.err.println(lexer.render(d));
+        }
+        if (timing) {
+            double lexMs = (t1 - t0) / 1e6;
+            double secs = Math.max(t1 - t0, 1) / 1e9;
+            System.err.printf("%s: %d tokens, %d bytes, lexer %.3f ms (%.1f MB/s, %.0f tokens/s), salida %.3f ms%n",
+                name, tokens.size() - 1, size, lexMs, size / secs / 1e6, (tokens.size() - 1) / secs, (t2 - t1) / 1e6);
+        }
+        return lexer.diagnostics().isEmpty() ? 0 : 1;
+    }
+
+    private void write(TokenBuffer tokens) throws IOException {
+        if (!compact) out.write("\n=== TOKENS ===\n");
+        TokenBuffer.Cursor t = tokens.cursor();
+        while (t.next()) {
+            if (t.type() == TokenType.EOF) break;
+            write(t.type(), t.lexeme(), t.line(), t.column());
+        }
+    }
+
+    // Tokens leídos de la caché; la misma salida que write(TokenBuffer)
+    private void write(List<Token> tokens) throws IOException {
+        if (!compact) out.write("\n=== TOKENS ===\n");
+        for (Token t : tokens) {
+            if (t.type == TokenType.EOF) break;
+            write(t.type, t.lexeme(), t.line, t.column);
+        }
+    }
+
+    private void write(TokenType type, String lexeme, int line, int column) throws IOException {
+        if (type == TokenType.ERROR) lexeme = printable(lexeme);
+        if (compact) {
+            out.write(Integer.toString(line));
+            out.write('\t');
+            out.write(Integer.toString(column));
+            out.write('\t');
+            out.write(type.name());
+            out.write('\t');
+            out.write(lexeme);
+            out.write('\n');
+        } else {
+            // mismo formato que Token.toString()
+            out.write('<');
+            out.write(type.name());
+            out.write(", '");
+            out.write(lexeme);
+            out.write("', line=");
+            out.write(Integer.toString(line));
+            out.write(", col=");
+            out.write(Integer.toString(column));
+            out.write(">\n");
+        }
+    }
+
+    private static String printable(String s) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < s.length(); i++) sb.append(Lexer.printable(s.charAt(i)));
+        return sb.toString();
+    }
+
+    // Lee toda la entrada por un canal, sin pasar por líneas ni regex
+    static ByteBuffer readAll(InputStream in) throws IOException {
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+        while (channel.read(buf) >= 0) {
+            if (!buf.hasRemaining()) {
+                ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+        }
+        buf.flip();
+        return buf;
+    }
+}
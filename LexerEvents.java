@@ -0,0 +1,106 @@
+import jdk.jfr.*;
+
+/**
+ * Eventos de JDK Flight Recorder del lexer, para correlacionar picos de
+ * lexeo con GC y CPU en la misma grabación:
+ *
+ *   lexer.Scan          escaneo completo (Lexer/Utf8Lexer), umbral 1 ms
+ *   lexer.LexicalError  cada carácter inválido, lanzado o registrado
+ *   lexer.TokenCache    consulta a TokenCache (acierto o fallo), umbral 1 ms
+ *
+ * Los umbrales por defecto evitan registrar escaneos cortos; se cambian en
+ * el .jfc o con -XX:StartFlightRecording:settings=... como cualquier evento
+ * del JDK. Sin grabación activa, shouldCommit() es falso y los campos ni
+ * siquiera se calculan.
+ */
+final class LexerEvents {
+
+    private LexerEvents() {
+    }
+
+    @Name("lexer.Scan")
+    @Label("Lexer Scan")
+    @Category({"Compiler", "Lexer"})
+    @Description("Escaneo completo de una entrada")
+    @Threshold("1 ms")
+    static final class Scan extends Event {
+        @Label("API")
+        String api;
+
+        @Label("Source Length")
+        @DataAmount
+        long sourceLength;
+
+        @Label("Tokens")
+        int tokens;
+
+        @Label("Errors")
+        int errors;
+    }
+
+    @Name("lexer.LexicalError")
+    @Label("Lexical Error")
+    @Category({"Compiler", "Lexer"})
+    @Description("Carácter inválido; recovered indica si se registró en vez de lanzarse")
+    @StackTrace(false)
+    static final class LexicalError extends Event {
+        @Label("Line")
+        int line;
+
+        @Label("Column")
+        int column;
+
+        @Label("Offset")
+        int offset;
+
+        @Label("Character")
+        char character;
+
+        @Label("Recovered")
+        boolean recovered;
+    }
+
+    @Name("lexer.TokenCache")
+    @Label("Token Cache Lookup")
+    @Category({"Compiler", "Lexer"})
+    @Description("Consulta a la caché de tokens, con el lexeo y la escritura si falló")
+    @Threshold("1 ms")
+    static final class CacheLookup extends Event {
+        @Label("Hit")
+        boolean hit;
+
+        @Label("Key")
+        String key;
+
+        @Label("Source Length")
+        @DataAmount
+        long sourceLength;
+
+        @Label("Tokens")
+        int tokens;
+    }
+
+    /** Cierra un evento de escaneo empezado con begin() y lo emite si pasa el umbral. */
+    static void commit(Scan event, String api, long sourceLength, int tokens, int errors) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.api = api;
+            event.sourceLength = sourceLength;
+            event.tokens = tokens;
+            event.errors = errors;
+            event.commit();
+        }
+    }
+
+    static void error(Diagnostic d, boolean recovered) {
+        LexicalError event = new LexicalError();
+        if (event.shouldCommit()) {
+            event.line = d.line;
+            event.column = d.column;
+            event.offset = d.offset;
+            event.character = d.ch;
+            event.recovered = recovered;
+            event.commit();
+        }
+    }
+}
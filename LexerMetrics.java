@@ -0,0 +1,200 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de ejecución del lexer para servicios de larga vida: escaneos,
+ * tamaño de entrada, tokens por tipo, errores, tiempo de lexeo y mayor
+ * entrada, acumulados en LongAdder para que varios hilos registren sin
+ * contención. Se leen con snapshot() o por JMX (register()).
+ *
+ * Desactivadas por defecto: cada escaneo completo consulta un único flag y
+ * no hace nada más. Con -Dlexer.metrics=true arrancan activadas y
+ * registradas en el MBeanServer de la plataforma. Solo cuentan las APIs de
+ * escaneo completo de Lexer y Utf8Lexer (no nextToken()).
+ */
+final class LexerMetrics implements LexerMetricsMXBean {
+    static final String OBJECT_NAME = "lexer:type=LexerMetrics";
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    static final LexerMetrics GLOBAL = new LexerMetrics();
+
+    private volatile boolean enabled;
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder[] tokens = new LongAdder[TYPES.length];
+    private final LongAccumulator maxInput = new LongAccumulator(Math::max, 0);
+
+    static {
+        if (Boolean.getBoolean("lexer.metrics")) {
+            GLOBAL.setEnabled(true);
+            register();
+        }
+    }
+
+    private LexerMetrics() {
+        for (int i = 0; i < tokens.length; i++) tokens[i] = new LongAdder();
+    }
+
+    static boolean enabled() {
+        return GLOBAL.enabled;
+    }
+
+    /** Publica GLOBAL en el MBeanServer de la plataforma; no hace nada si ya estaba. */
+    static void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(GLOBAL, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // ya registrado
+        } catch (JMException e) {
+            throw new IllegalStateException("no se pudo registrar " + OBJECT_NAME, e);
+        }
+    }
+
+    /**
+     * Registra un escaneo: size de entrada consumida, tokens por ordinal de
+     * TokenType (null si se abortó con un error), errores y duración.
+     */
+    void record(long size, int[] counts, int errorCount, long elapsedNanos) {
+        scans.increment();
+        bytes.add(size);
+        errors.add(errorCount);
+        nanos.add(elapsedNanos);
+        maxInput.accumulate(size);
+        if (counts != null) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) tokens[i].add(counts[i]);
+            }
+        }
+    }
+
+    static int[] countTypes(List<Token> list) {
+        int[] counts = new int[TYPES.length];
+        for (Token t : list) counts[t.type.ordinal()]++;
+        counts[TokenType.EOF.ordinal()] = 0;
+        return counts;
+    }
+
+    static int[] countTypes(TokenBuffer buffer) {
+        int[] counts = new int[TYPES.length];
+        for (int i = 0, n = buffer.size(); i < n; i++) counts[buffer.type(i).ordinal()]++;
+        counts[TokenType.EOF.ordinal()] = 0;
+        return counts;
+    }
+
+    /** Copia de los contadores; cada uno se suma por separado, sin frenar a quien está escaneando. */
+    Snapshot snapshot() {
+        long[] byType = new long[TYPES.length];
+        for (int i = 0; i < byType.length; i++) byType[i] = tokens[i].sum();
+        return new Snapshot(scans.sum(), bytes.sum(), byType, errors.sum(), nanos.sum(), maxInput.get());
+    }
+
+    static final class Snapshot {
+        final long scans;
+        final long bytes;
+        final long tokens;
+        final long errors;
+        final long nanos;
+        final long maxInputSize;
+        private final long[] byType;
+
+        Snapshot(long scans, long bytes, long[] byType, long errors, long nanos, long maxInputSize) {
+            this.scans = scans;
+            this.bytes = bytes;
+            this.byType = byType;
+            this.errors = errors;
+            this.nanos = nanos;
+            this.maxInputSize = maxInputSize;
+            long total = 0;
+            for (long n : byType) total += n;
+            this.tokens = total;
+        }
+
+        long tokens(TokenType type) {
+            return byType[type.ordinal()];
+        }
+
+        double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytes / (nanos / 1e9) / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return scans + " escaneos, " + bytes + " bytes, " + tokens + " tokens, " + errors + " errores, "
+                + String.format("%.3f ms (%.1f MB/s), mayor entrada %d", nanos / 1e6, megabytesPerSecond(), maxInputSize);
+        }
+    }
+
+    // === LexerMetricsMXBean ===
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getScans() {
+        return scans.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getTokens() {
+        return snapshot().tokens;
+    }
+
+    @Override
+    public Map<String, Long> getTokensByType() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (TokenType t : TYPES) {
+            if (t != TokenType.EOF) map.put(t.name(), tokens[t.ordinal()].sum());
+        }
+        return map;
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getLexNanos() {
+        return nanos.sum();
+    }
+
+    @Override
+    public long getMaxInputSize() {
+        return maxInput.get();
+    }
+
+    @Override
+    public double getMegabytesPerSecond() {
+        return snapshot().megabytesPerSecond();
+    }
+
+    @Override
+    public void reset() {
+        scans.reset();
+        bytes.reset();
+        errors.reset();
+        nanos.reset();
+        maxInput.reset();
+        for (LongAdder a : tokens) a.reset();
+    }
+}
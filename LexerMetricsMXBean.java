@@ -0,0 +1,34 @@
+import java.util.Map;
+
+/**
+ * Vista JMX de LexerMetrics (se registra como "lexer:type=LexerMetrics").
+ * Los contadores son acumulados desde el arranque o el último reset().
+ */
+public interface LexerMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    /** Escaneos completos registrados (scanTokens, scanToBuffer...). */
+    long getScans();
+
+    /** Tamaño de entrada escaneado: chars en Lexer (bytes si es ASCII), bytes en Utf8Lexer. */
+    long getBytes();
+
+    long getTokens();
+
+    /** Tokens por nombre de TokenType, sin EOF. */
+    Map<String, Long> getTokensByType();
+
+    long getErrors();
+
+    long getLexNanos();
+
+    /** Mayor entrada escaneada de una vez. */
+    long getMaxInputSize();
+
+    /** Throughput medio: bytes / tiempo de lexeo acumulado. */
+    double getMegabytesPerSecond();
+
+    void reset();
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * Tokens de ortografía fija: paréntesis, llaves y símbolos. Cada uno lleva
+ * su lexema canónico, así que el lexer nunca reserva un String para ellos.
+ * Para añadir un símbolo basta con declararlo aquí (también operadores
+ * dobles como "&&" o "+="; el lexer prueba primero el par de caracteres).
+ */
+enum Punct {
+    LPAREN("(", TokenType.PAREN),
+    RPAREN(")", TokenType.PAREN),
+    LBRACE("{", TokenType.BRACE),
+    RBRACE("}", TokenType.BRACE),
+
+    // Símbolos de un carácter
+    PLUS("+", TokenType.SYMBOL),
+    MINUS("-", TokenType.SYMBOL),
+    STAR("*", TokenType.SYMBOL),
+    SLASH("/", TokenType.SYMBOL),
+    PERCENT("%", TokenType.SYMBOL),
+    ASSIGN("=", TokenType.SYMBOL),
+    SEMICOLON(";", TokenType.SYMBOL),
+    COMMA(",", TokenType.SYMBOL),
+    DOT(".", TokenType.SYMBOL),
+    COLON(":", TokenType.SYMBOL),
+
+    // Operadores de dos caracteres
+    EQ("==", TokenType.SYMBOL),
+    NE("!=", TokenType.SYMBOL),
+    LE("<=", TokenType.SYMBOL),
+    GE(">=", TokenType.SYMBOL);
+
+    final String lexeme;
+    final TokenType type;
+
+    private static final Punct[] VALUES = values();
+    private static final Punct[] SINGLE = new Punct[128];
+    private static final Punct[][] PAIRS = new Punct[128][]; // operadores dobles por primer carácter
+
+    static {
+        for (Punct p : VALUES) {
+            char first = p.lexeme.charAt(0);
+            if (p.lexeme.length() == 1) {
+                SINGLE[first] = p;
+            } else {
+                Punct[] row = PAIRS[first] == null ? new Punct[1] : Arrays.copyOf(PAIRS[first], PAIRS[first].length + 1);
+                row[row.length - 1] = p;
+                PAIRS[first] = row;
+            }
+        }
+    }
+
+    Punct(String lexeme, TokenType type) {
+        this.lexeme = lexeme;
+        this.type = type;
+    }
+
+    static Punct of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /** Símbolo de un carácter que empieza por c, o null. */
+    static Punct single(char c) {
+        return c < 128 ? SINGLE[c] : null;
+    }
+
+    /** Operador de dos caracteres formado por first y second, o null. */
+    static Punct pair(char first, char second) {
+        if (first >= 128) return null;
+        Punct[] row = PAIRS[first];
+        if (row == null) return null;
+        for (Punct p : row) {
+            if (p.lexeme.charAt(1) == second) return p;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,58 @@
+import java.util.List;
+
+/**
+ * Métricas y evento JFR de un escaneo completo (scanTokens, scanToBuffer,
+ * scanToBufferParallel): guarda el instante de inicio, la posición de
+ * partida, los errores que ya había y el evento lexer.Scan. Cada salida del
+ * escaneo llama a done() o, antes de relanzar, a fail(); así ninguna deja
+ * el evento sin cerrar ni el escaneo sin contar.
+ *
+ * Con enabled en false (los trozos de scanToBufferParallel, que cuenta el
+ * lexer que los cose) no registra nada.
+ */
+final class ScanRecorder {
+    private final String api;
+    private final boolean enabled;
+    private final boolean metrics;
+    private final List<Diagnostic> diagnostics;
+    private final int from;
+    private final int errors;
+    private final long t0;
+    private final LexerEvents.Scan event;
+
+    ScanRecorder(String api, boolean enabled, int from, List<Diagnostic> diagnostics) {
+        this.api = api;
+        this.enabled = enabled;
+        this.metrics = enabled && LexerMetrics.enabled();
+        this.diagnostics = diagnostics;
+        this.from = from;
+        this.errors = diagnostics.size();
+        this.t0 = metrics ? System.nanoTime() : 0;
+        this.event = enabled ? new LexerEvents.Scan() : null;
+        if (enabled) event.begin();
+    }
+
+    /** Escaneo abortado por una LexicalException en at, con tokens ya producidos. */
+    void fail(int at, int tokens) {
+        if (metrics) LexerMetrics.GLOBAL.record(at - from, null, 1, System.nanoTime() - t0);
+        if (enabled) LexerEvents.commit(event, api, at - from, tokens, 1);
+    }
+
+    /** Escaneo terminado en at; tokens acaba en EOF, que no se cuenta. */
+    void done(int at, List<Token> tokens) {
+        if (metrics) {
+            LexerMetrics.GLOBAL.record(at - from, LexerMetrics.countTypes(tokens),
+                                       diagnostics.size() - errors, System.nanoTime() - t0);
+        }
+        if (enabled) LexerEvents.commit(event, api, at - from, tokens.size() - 1, diagnostics.size() - errors);
+    }
+
+    /** Igual que done(int, List), para un TokenBuffer que acaba en EOF. */
+    void done(int at, TokenBuffer buffer) {
+        if (metrics) {
+            LexerMetrics.GLOBAL.record(at - from, LexerMetrics.countTypes(buffer),
+                                       diagnostics.size() - errors, System.nanoTime() - t0);
+        }
+        if (enabled) LexerEvents.commit(event, api, at - from, buffer.size() - 1, diagnostics.size() - errors);
+    }
+}
@@ -0,0 +1,315 @@
+import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.channels.*;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Lexer en streaming sobre un Reader con un buffer de tamaño fijo que se
+ * rellena a medida que avanza, de modo que la memoria no depende del tamaño
+ * de la entrada. Solo se conserva del texto ya leído el token en curso (y,
+ * si cabe, el principio de la línea actual para los mensajes de error).
+ *
+ * Diferencias con Lexer: cada token trae su lexema ya materializado (el
+ * buffer se reutiliza), offset es -1 si el flujo supera los 2 GB, y los
+ * mensajes de error se generan en el momento del error. Un token más largo
+ * que el buffer lo hace crecer; la tabla de símbolos crece con el número de
+ * identificadores distintos, no con el tamaño de la entrada.
+ */
+public class StreamingLexer {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final Reader in;
+    private char[] buf;
+    private CharBuffer view;  // buf como CharSequence para KeywordTable/SymbolTable
+    private int end = 0;      // fin de los datos válidos en buf
+    private int pos = 0;      // índice en buf del carácter actual
+    private long base = 0;    // offset absoluto de buf[0]
+    private boolean eof = false;
+    private int lineStart = 0; // índice en buf del inicio de la línea actual; -1 si ya se descartó
+    private int line = 1;
+    private int column = 1;
+
+    // Inicio del último token (índice en buf); lo que hay antes se puede descartar
+    private int tokStart;
+    private int tokLine;
+    private int tokColumn;
+    private int tokId;
+
+    private final SymbolTable symbols = new SymbolTable();
+
+    private boolean recovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>(); // paralela a diagnostics
+
+    public StreamingLexer(Reader in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public StreamingLexer(Reader in, int bufferSize) {
+        if (bufferSize < 16) throw new IllegalArgumentException("buffer demasiado pequeño: " + bufferSize);
+        this.in = in;
+        this.buf = new char[bufferSize];
+        this.view = CharBuffer.wrap(buf);
+    }
+
+    /**
+     * Lee UTF-8 del canal a través del mismo buffer acotado. Los bytes mal
+     * formados llegan como U+FFFD y dan un error léxico, como en Utf8Lexer,
+     * en vez de una MalformedInputException.
+     */
+    public StreamingLexer(ReadableByteChannel channel, int bufferSize) {
+        this(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE), -1), bufferSize);
+    }
+
+    /** Siguiente token; al llegar al final devuelve EOF indefinidamente. */
+    public Token nextToken() throws IOException {
+        TokenType type = lexNext();
+        int length = pos - tokStart;
+        String lexeme;
+        if (type == TokenType.NUMBER || type == TokenType.ERROR) {
+            lexeme = new String(buf, tokStart, length);
+        } else {
+            lexeme = Token.canonicalLexeme(type, tokId, symbols);
+        }
+        long offset = base + tokStart;
+        return new Token(type, lexeme, offset <= Integer.MAX_VALUE ? (int) offset : -1, length,
+                         tokLine, tokColumn, tokId, lexeme);
+    }
+
+    public void setRecoveryMode(boolean recovery) {
+        this.recovery = recovery;
+    }
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    /** Mensaje de un diagnóstico de este lexer, generado cuando se produjo. */
+    public String render(Diagnostic d) {
+        int i = diagnostics.indexOf(d);
+        if (i < 0) throw new IllegalArgumentException("diagnóstico de otro lexer: " + d);
+        return messages.get(i);
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    // === Núcleo ===
+
+    private TokenType lexNext() throws IOException {
+        while (available()) {
+            char c = buf[pos];
+
+            tokStart = pos;
+            tokLine = line;
+            tokColumn = column;
+            tokId = -1;
+
+            byte cls = Lexer.charClass(c);
+            switch (cls) {
+                case Lexer.CC_WHITESPACE:
+                    skipWhitespace();
+                    break;
+
+                case Lexer.CC_IDENT:
+                    readIdentifier();
+                    tokId = Lexer.KEYWORDS.lookup(view, tokStart, pos);
+                    if (tokId >= 0) return TokenType.KEYWORD;
+                    tokId = symbols.intern(view, tokStart, pos);
+                    return TokenType.IDENTIFIER;
+
+                case Lexer.CC_DIGIT:
+                    return readNumber() ? TokenType.NUMBER : TokenType.ERROR;
+
+                case Lexer.CC_PAREN:
+                case Lexer.CC_BRACE: {
+                    Punct p = Punct.single(c);
+                    advance();
+                    tokId = p.ordinal();
+                    return p.type;
+                }
+
+                case Lexer.CC_SYMBOL:
+                case Lexer.CC_OPERATOR: {
+                    Punct p = available(2) ? Punct.pair(c, buf[pos + 1]) : null;
+                    if (p != null) {
+                        advance();
+                        advance();
+                    } else if (cls == Lexer.CC_SYMBOL) {
+                        p = Punct.single(c);
+                        advance();
+                    } else {
+                        errorInvalidChar(c, tokStart, tokLine, tokColumn);
+                        advance();
+                        return TokenType.ERROR;
+                    }
+                    tokId = p.ordinal();
+                    return p.type;
+                }
+
+                default:
+                    errorInvalidChar(c, tokStart, tokLine, tokColumn);
+                    skipInvalid();
+                    return TokenType.ERROR;
+            }
+        }
+
+        tokStart = pos;
+        tokLine = line;
+        tokColumn = column;
+        tokId = -1;
+        return TokenType.EOF;
+    }
+
+    private void skipWhitespace() throws IOException {
+        while (true) {
+            if (pos == end) {
+                tokStart = pos; // el espacio ya consumido no hace falta conservarlo
+                if (!fill()) return;
+            }
+            char c = buf[pos];
+            if (c >= 128 || Lexer.CHAR_CLASS[c] != Lexer.CC_WHITESPACE) return;
+            advance();
+        }
+    }
+
+    private void readIdentifier() throws IOException {
+        advance();
+        while (available()) {
+            byte cls = Lexer.charClass(buf[pos]);
+            if (cls != Lexer.CC_IDENT && cls != Lexer.CC_DIGIT) break;
+            advance();
+        }
+    }
+
+    private boolean readNumber() throws IOException {
+        boolean seenDot = false;
+        while (available()) {
+            char c = buf[pos];
+            if (Lexer.charClass(c) == Lexer.CC_DIGIT) {
+                advance();
+            } else if (c == '.' && !seenDot) {
+                seenDot = true;
+                advance();
+                if (available() && Lexer.charClass(buf[pos]) != Lexer.CC_DIGIT) {
+                    errorInvalidChar(buf[pos], pos, line, column);
+                    // entra en el token ERROR, salvo un blanco (como en Lexer)
+                    if (Lexer.charClass(buf[pos]) != Lexer.CC_WHITESPACE) skipInvalid();
+                    return false;
+                }
+            } else {
+                break;
+            }
+        }
+        return true;
+    }
+
+    // Un par sustituto es un solo error, como en Lexer
+    private void skipInvalid() throws IOException {
+        char c = buf[pos];
+        advance();
+        if (Character.isHighSurrogate(c) && available() && Character.isLowSurrogate(buf[pos])) advance();
+    }
+
+    private void advance() {
+        char c = buf[pos++];
+        if (c == '\n') {
+            line++;
+            column = 1;
+            lineStart = pos;
+        } else {
+            column++;
+        }
+    }
+
+    // === Buffer ===
+
+    private boolean available() throws IOException {
+        return pos < end || fill();
+    }
+
+    private boolean available(int n) throws IOException {
+        while (end - pos < n) {
+            if (!fill()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Lee más datos. Antes descarta lo anterior al token en curso (o al
+     * inicio de la línea, si no ocupa más de medio buffer); si el token
+     * llena el buffer entero, lo duplica.
+     */
+    private boolean fill() throws IOException {
+        if (eof) return false;
+        int keep = tokStart;
+        if (lineStart >= 0 && lineStart < keep && keep - lineStart <= buf.length / 2) keep = lineStart;
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, end - keep);
+            end -= keep;
+            pos -= keep;
+            tokStart -= keep;
+            lineStart = lineStart >= keep ? lineStart - keep : -1;
+            base += keep;
+        }
+        if (end == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2);
+            view = CharBuffer.wrap(buf);
+        }
+        int n;
+        do {
+            n = in.read(buf, end, buf.length - end);
+        } while (n == 0);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        end += n;
+        return true;
+    }
+
+    // === Errores ===
+
+    private void errorInvalidChar(char c, int errIndex, int errLine, int errCol) throws IOException {
+        long offset = base + errIndex;
+        Diagnostic d = new Diagnostic(offset <= Integer.MAX_VALUE ? (int) offset : -1, errLine, errCol, c);
+        String message = renderNow(d, errIndex);
+        LexerEvents.error(d, recovery);
+        if (recovery) {
+            diagnostics.add(d);
+            messages.add(message);
+            return;
+        }
+        throw new LexicalException(message, d);
+    }
+
+    /**
+     * Arma el mensaje con lo que queda de la línea en la ventana. Si el
+     * principio de la línea ya se descartó se muestra desde el inicio del
+     * buffer precedido de "...".
+     */
+    private String renderNow(Diagnostic d, int errIndex) throws IOException {
+        // posiciones absolutas: fill() puede desplazar el buffer mientras se busca el '\n'
+        long errAbs = base + errIndex;
+        long scanAbs = errAbs;
+        while (true) {
+            int from = lineStart >= 0 ? lineStart : 0;
+            int scan = (int) (scanAbs - base);
+            while (scan < end && buf[scan] != '\n') scan++;
+            scanAbs = base + scan;
+            // con el buffer lleno desde from, leer más obligaría a agrandarlo: se corta ahí
+            if (scan < end || end - from >= buf.length || !fill()) break;
+        }
+        int from = lineStart >= 0 ? lineStart : 0;
+        int to = (int) (scanAbs - base);
+        String prefix = lineStart >= 0 ? "" : "...";
+        String text = prefix + new String(buf, from, to - from);
+        int pointerCol = lineStart >= 0 ? d.column : prefix.length() + (int) (errAbs - base) - from + 1;
+        return Lexer.formatError(d, text, pointerCol);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Clasificación de 8 bytes a la vez dentro de un long (SWAR). Los bytes se
+ * leen en little endian, así que el byte i del texto ocupa los bits 8i..8i+7
+ * y el primer byte que no cumple una condición es el bit alto más bajo de
+ * la máscara. Cada máscara tiene el bit alto (0x80) de cada byte que cumple
+ * y nada más: las operaciones no propagan acarreos de un byte al siguiente.
+ *
+ * Lo usan Lexer (sobre AsciiSource) y Utf8Lexer para saltar blancos y
+ * recorrer identificadores; el camino de un carácter por vez sigue siendo la
+ * referencia y se puede forzar con -Dlexer.scalar=true.
+ *
+ * Con --add-modules jdk.incubator.vector se lee primero de 16 a 32 bytes
+ * por vuelta con VectorScan y esto queda para el final de la entrada que no
+ * llena un vector; -Dlexer.vector=false lo desactiva.
+ */
+final class Swar {
+    static final boolean ENABLED = !Boolean.getBoolean("lexer.scalar");
+
+    /** Camino de VectorScan: SWAR activo, módulo cargado y -Dlexer.vector no es false. */
+    static final boolean VECTOR = ENABLED && !"false".equals(System.getProperty("lexer.vector")) && vectorLoaded();
+
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long ONES = 0x0101010101010101L;
+
+    private static final long SPACE = broadcast(' ');
+    private static final long TAB = broadcast('\t');
+    private static final long CR = broadcast('\r');
+    private static final long NL = broadcast('\n');
+    private static final long UNDERSCORE = broadcast('_');
+    private static final long CASE_BIT = broadcast(0x20);
+
+    private Swar() {
+    }
+
+    // Sin el módulo no se toca VectorScan, que no podría cargarse
+    private static boolean vectorLoaded() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return VectorScan.LENGTH >= 16;
+        } catch (LinkageError e) {
+            return false; // API distinta a la de compilación, o sin SIMD usable
+        }
+    }
+
+    static long broadcast(int b) {
+        return ONES * (b & 0xFF);
+    }
+
+    /** Bytes de w iguales a los de pattern (un byte repetido). */
+    static long eq(long w, long pattern) {
+        long x = w ^ pattern;
+        return ~(((x & LOW7) + LOW7) | x) & HIGH;
+    }
+
+    // Bytes ASCII de w en [lo, hi]; w no debe tener bytes >= 0x80
+    private static long inRange(long w, int lo, int hi) {
+        long ge = w + broadcast(0x80 - lo);
+        long gt = w + broadcast(0x7F - hi);
+        return ge & ~gt & HIGH;
+    }
+
+    /** '\n' de w. */
+    static long newlines(long w) {
+        return eq(w, NL);
+    }
+
+    /** Blancos de w (espacio, tab, '\r' y '\n', los CC_WHITESPACE de Lexer). */
+    static long whitespace(long w) {
+        return eq(w, SPACE) | eq(w, TAB) | eq(w, CR) | eq(w, NL);
+    }
+
+    /** Bytes ASCII de identificador en w: letras, dígitos y '_'. Los no ASCII no cuentan. */
+    static long identifier(long w) {
+        long ascii = ~w & HIGH;
+        long w7 = w & LOW7;
+        long letters = inRange(w7 | CASE_BIT, 'a', 'z');
+        long digits = inRange(w7, '0', '9');
+        return (letters | digits | eq(w, UNDERSCORE)) & ascii;
+    }
+
+    /** Cuántos bytes seguidos desde el primero cumplen la máscara (0 a 8). */
+    static int run(long mask) {
+        return Long.numberOfTrailingZeros(~mask & HIGH) >>> 3;
+    }
+
+    /** Máscara limitada a los primeros n bytes (0 a 8). */
+    static long prefix(long mask, int n) {
+        return n >= 8 ? mask : mask & ((1L << (n << 3)) - 1);
+    }
+
+    /** Índice (0 a 7) del último byte marcado; la máscara no debe ser 0. */
+    static int last(long mask) {
+        return (63 - Long.numberOfLeadingZeros(mask)) >>> 3;
+    }
+}
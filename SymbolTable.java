@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * Tabla de identificadores internados. Cada nombre distinto recibe un id
+ * entero denso (0, 1, 2...) y un único String canónico; la búsqueda hashea
+ * el rango de la fuente directamente (direccionamiento abierto con sondeo
+ * lineal), así que solo se crea el String la primera vez que aparece.
+ */
+final class SymbolTable {
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int[] slots = new int[128]; // id + 1; 0 = hueco
+    private int size = 0;
+
+    /** Id del identificador src[start, end), registrándolo si es nuevo. */
+    int intern(CharSequence src, int start, int end) {
+        int h = hash(src, start, end);
+        int mask = slots.length - 1;
+        int i = h & mask;
+        while (true) {
+            int id = slots[i] - 1;
+            if (id < 0) break;
+            if (hashes[id] == h && Token.regionEquals(src, start, end - start, names[id])) return id;
+            i = (i + 1) & mask;
+        }
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = src.subSequence(start, end).toString();
+        hashes[id] = h;
+        slots[i] = id + 1;
+        if (size * 2 > slots.length) rehash();
+        return id;
+    }
+
+    int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    /** Id del identificador, o -1 si nunca se ha internado. */
+    int lookup(CharSequence src, int start, int end) {
+        int h = hash(src, start, end);
+        int mask = slots.length - 1;
+        for (int i = h & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int id = slots[i] - 1;
+            if (hashes[id] == h && Token.regionEquals(src, start, end - start, names[id])) return id;
+        }
+        return -1;
+    }
+
+    String name(int id) {
+        return names[id];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        int[] table = new int[slots.length * 2];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = hashes[id] & mask;
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+        slots = table;
+    }
+
+    private static int hash(CharSequence src, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) h = 31 * h + src.charAt(i);
+        return h ^ (h >>> 16);
+    }
+}
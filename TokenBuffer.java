@@ -0,0 +1,224 @@
+import java.util.*;
+
+/**
+ * Secuencia de tokens en formato compacto (struct-of-arrays): el tipo en un
+ * byte, inicio y longitud como offsets dentro de la fuente y línea/columna
+ * empaquetadas en un long. Los lexemas se sacan de la fuente bajo demanda.
+ */
+final class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final byte NUMBER = (byte) TokenType.NUMBER.ordinal();
+
+    private final CharSequence source;
+    private final SymbolTable symbols;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private long[] positions; // (línea << 32) | columna
+    private int[] ids;        // ver Token.id
+    private int size = 0;
+
+    // Parte de la fuente que cubrirán los tokens, para proyectar el crecimiento
+    private final int regionStart;
+    private final int regionEnd;
+
+    TokenBuffer(CharSequence source, SymbolTable symbols, int initialCapacity) {
+        this(source, symbols, initialCapacity, 0, source.length());
+    }
+
+    /** Buffer para los tokens de [regionStart, regionEnd) de la fuente (un trozo, el resto tras un peek). */
+    TokenBuffer(CharSequence source, SymbolTable symbols, int initialCapacity, int regionStart, int regionEnd) {
+        this.source = source;
+        this.symbols = symbols;
+        this.regionStart = regionStart;
+        this.regionEnd = regionEnd;
+        int cap = Math.max(initialCapacity, 16);
+        this.kinds = new byte[cap];
+        this.starts = new int[cap];
+        this.lengths = new int[cap];
+        this.positions = new long[cap];
+        this.ids = new int[cap];
+    }
+
+    void add(TokenType type, int start, int length, int line, int column, int id) {
+        if (size == kinds.length) grow(projectedCapacity(start));
+        kinds[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        positions[size] = ((long) line << 32) | (column & 0xFFFFFFFFL);
+        ids[size] = id;
+        size++;
+    }
+
+    /**
+     * Añade los tokens [lo, hi) de otro buffer desplazados: offsetDelta a los
+     * inicios, lineDelta a las líneas y columnDelta a las columnas de los que
+     * estaban en la línea columnLine (la única cuyas columnas cambian con una
+     * edición en medio de ella).
+     */
+    void addRange(TokenBuffer from, int lo, int hi, int offsetDelta, int lineDelta, int columnDelta, int columnLine) {
+        int n = hi - lo;
+        if (size + n > kinds.length) grow(size + n);
+        System.arraycopy(from.kinds, lo, kinds, size, n);
+        System.arraycopy(from.starts, lo, starts, size, n);
+        System.arraycopy(from.lengths, lo, lengths, size, n);
+        System.arraycopy(from.positions, lo, positions, size, n);
+        System.arraycopy(from.ids, lo, ids, size, n);
+        if (offsetDelta != 0) {
+            for (int i = size; i < size + n; i++) starts[i] += offsetDelta;
+        }
+        if (lineDelta != 0 || columnDelta != 0) {
+            long shiftedLine = (long) columnLine << 32;
+            for (int i = size; i < size + n; i++) {
+                long p = positions[i];
+                // las columnas solo cambian en la primera línea del rango
+                if (columnDelta != 0 && (p & 0xFFFFFFFF00000000L) == shiftedLine) {
+                    p = (p & 0xFFFFFFFF00000000L) | ((int) p + columnDelta & 0xFFFFFFFFL);
+                }
+                positions[i] = p + ((long) lineDelta << 32);
+            }
+        }
+        size += n;
+    }
+
+    // Total proyectado con la densidad de tokens vista en la región hasta
+    // start, más 1/8 de margen: con muchos tokens cortos los arrays crecen una
+    // vez, no dos o tres
+    private int projectedCapacity(int start) {
+        int covered = start - regionStart;
+        if (covered <= 0) return 0;
+        long total = (long) size * (regionEnd - regionStart) / covered;
+        return (int) Math.min(total + (total >>> 3), Integer.MAX_VALUE - 8);
+    }
+
+    private void grow(int minCapacity) {
+        int cap = Math.max(minCapacity, kinds.length + (kinds.length >>> 1));
+        kinds = Arrays.copyOf(kinds, cap);
+        starts = Arrays.copyOf(starts, cap);
+        lengths = Arrays.copyOf(lengths, cap);
+        positions = Arrays.copyOf(positions, cap);
+        ids = Arrays.copyOf(ids, cap);
+    }
+
+    // === Acceso por índice ===
+
+    int size() {
+        return size;
+    }
+
+    CharSequence source() {
+        return source;
+    }
+
+    TokenType type(int i) {
+        return TYPES[kinds[i]];
+    }
+
+    int start(int i) {
+        return starts[i];
+    }
+
+    int length(int i) {
+        return lengths[i];
+    }
+
+    int line(int i) {
+        return (int) (positions[i] >>> 32);
+    }
+
+    int column(int i) {
+        return (int) positions[i];
+    }
+
+    int id(int i) {
+        return ids[i];
+    }
+
+    SymbolTable symbols() {
+        return symbols;
+    }
+
+    String lexeme(int i) {
+        String canonical = canonicalLexeme(i);
+        return canonical != null ? canonical : source.subSequence(starts[i], starts[i] + lengths[i]).toString();
+    }
+
+    private String canonicalLexeme(int i) {
+        return kinds[i] == NUMBER ? null : Token.canonicalLexeme(type(i), ids[i], symbols);
+    }
+
+    boolean lexemeEquals(int i, CharSequence s) {
+        return Token.regionEquals(source, starts[i], lengths[i], s);
+    }
+
+    // Materializa el token i como objeto (para consumidores que lo necesiten)
+    Token token(int i) {
+        return new Token(type(i), source, starts[i], lengths[i], line(i), column(i), ids[i], canonicalLexeme(i));
+    }
+
+    List<Token> toList() {
+        List<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) tokens.add(token(i));
+        return tokens;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Vista flyweight sobre el buffer: un único objeto que se desplaza por
+     * los tokens y ofrece acceso al estilo de Token sin reservar memoria.
+     */
+    final class Cursor {
+        private int index = -1;
+
+        // Avanza al siguiente token; false cuando ya no quedan
+        boolean next() {
+            if (index + 1 >= size) return false;
+            index++;
+            return true;
+        }
+
+        void moveTo(int i) {
+            if (i < 0 || i >= size) throw new IndexOutOfBoundsException("token " + i);
+            index = i;
+        }
+
+        int index() {
+            return index;
+        }
+
+        TokenType type() {
+            return TokenBuffer.this.type(index);
+        }
+
+        int start() {
+            return starts[index];
+        }
+
+        int length() {
+            return lengths[index];
+        }
+
+        int line() {
+            return TokenBuffer.this.line(index);
+        }
+
+        int column() {
+            return TokenBuffer.this.column(index);
+        }
+
+        int id() {
+            return ids[index];
+        }
+
+        String lexeme() {
+            return TokenBuffer.this.lexeme(index);
+        }
+
+        boolean lexemeEquals(CharSequence s) {
+            return TokenBuffer.this.lexemeEquals(index, s);
+        }
+    }
+}
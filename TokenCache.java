@@ -0,0 +1,240 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché persistente de tokens en disco. La clave es un hash de 128 bits de
+ * los bytes de la fuente junto con la configuración del lexer (palabras
+ * reservadas, símbolos y versión del formato), así que un archivo sin
+ * cambios no se vuelve a lexear. Las entradas son archivos .tok
+ * (TokenFile) escritos de forma atómica: primero a un temporal y después un
+ * move, de modo que builds concurrentes nunca ven un archivo a medias. Al
+ * superar el tamaño máximo se borran las entradas usadas hace más tiempo
+ * hasta bajar al 90 %.
+ *
+ * Un proceso que muere entre escribir el temporal y moverlo deja un .tmp
+ * huérfano; evict() borra los que llevan más de STALE_TMP_MILLIS sin
+ * tocarse (los recientes pueden ser escrituras en curso de otro proceso).
+ *
+ * El tamaño total se lleva como estimación (un recorrido del directorio al
+ * abrirla más lo que escribe esta instancia): recorrer y consultar cada
+ * entrada solo ocurre cuando la estimación pasa de maxBytes, es decir, como
+ * mucho una vez por cada 10 % de maxBytes escrito, no en cada fallo. Lo que
+ * escriban otros procesos se ve en ese recorrido.
+ */
+final class TokenCache {
+    private static final String SUFFIX = ".tok";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long STALE_TMP_MILLIS = 60 * 60 * 1000L;
+
+    private final Path dir;
+    private final long maxBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    TokenCache(Path dir, long maxBytes) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /** Tokens del archivo: de la caché si ya se lexeó con este contenido, si no se lexea y se guarda. */
+    List<Token> tokens(Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("archivo demasiado grande para mapear: " + source);
+            return tokens(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /** Igual que tokens(Path) para una fuente en UTF-8 ya cargada. */
+    List<Token> tokens(ByteBuffer source) throws IOException {
+        LexerEvents.CacheLookup event = new LexerEvents.CacheLookup();
+        event.begin();
+        String key = key(source);
+        Path entry = dir.resolve(key + SUFFIX);
+        List<Token> cached = read(entry);
+        if (cached != null) {
+            hits.incrementAndGet();
+            commit(event, true, key, source.remaining(), cached.size() - 1);
+            return cached;
+        }
+        misses.incrementAndGet();
+        TokenBuffer tokens = Lexer.fromBytes(source).scanToBuffer();
+        store(entry, tokens);
+        commit(event, false, key, source.remaining(), tokens.size() - 1);
+        return tokens.toList();
+    }
+
+    private static void commit(LexerEvents.CacheLookup event, boolean hit, String key, long size, int tokens) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.hit = hit;
+            event.key = key;
+            event.sourceLength = size;
+            event.tokens = tokens;
+            event.commit();
+        }
+    }
+
+    long hits() {
+        return hits.get();
+    }
+
+    long misses() {
+        return misses.get();
+    }
+
+    private List<Token> read(Path entry) {
+        try {
+            List<Token> tokens = TokenFile.open(entry).readTokens();
+            touch(entry);
+            return tokens;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // entrada corrupta o de otra versión: se descarta y se vuelve a lexear
+            try {
+                Files.deleteIfExists(entry);
+            } catch (IOException ignored) {
+                // otro proceso pudo borrarla o reemplazarla mientras tanto
+            }
+            return null;
+        }
+    }
+
+    private void store(Path entry, TokenBuffer tokens) throws IOException {
+        Path tmp = Files.createTempFile(dir, entry.getFileName().toString(), TMP_SUFFIX);
+        long size;
+        try {
+            TokenFile.write(tokens, tmp);
+            size = Files.size(tmp);
+            try {
+                Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        // una entrada reemplazada cuenta dos veces: solo adelanta el recorrido
+        if (estimatedBytes.addAndGet(size) > maxBytes) evict();
+    }
+
+    // La fecha de modificación hace de marca de último uso para el LRU
+    private static void touch(Path entry) {
+        try {
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+            // si falla solo se pierde precisión en el orden de desalojo
+        }
+    }
+
+    /**
+     * Si la caché pasa de maxBytes, borra las entradas menos usadas hasta
+     * dejarla en el 90 %; en cualquier caso rehace la estimación de tamaño
+     * con lo que queda y borra los temporales huérfanos.
+     */
+    void evict() throws IOException {
+        sweepTemporaries();
+        List<Path> entries = new ArrayList<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        Map<Path, Long> used = new HashMap<>();
+        long total = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + SUFFIX)) {
+            for (Path p : stream) {
+                try {
+                    long size = Files.size(p);
+                    sizes.put(p, size);
+                    used.put(p, Files.getLastModifiedTime(p).toMillis());
+                    entries.add(p);
+                    total += size;
+                } catch (NoSuchFileException ignored) {
+                    // desalojada por otro proceso
+                }
+            }
+        }
+        if (total > maxBytes) {
+            long target = maxBytes - maxBytes / 10;
+            entries.sort(Comparator.comparing(used::get));
+            for (Path p : entries) {
+                if (total <= target) break;
+                Files.deleteIfExists(p);
+                total -= sizes.get(p);
+            }
+        }
+        estimatedBytes.set(total);
+    }
+
+    private void sweepTemporaries() throws IOException {
+        long cutoff = System.currentTimeMillis() - STALE_TMP_MILLIS;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*" + TMP_SUFFIX)) {
+            for (Path p : stream) {
+                try {
+                    if (Files.getLastModifiedTime(p).toMillis() < cutoff) Files.deleteIfExists(p);
+                } catch (NoSuchFileException ignored) {
+                    // otro proceso la movió o la borró
+                }
+            }
+        }
+    }
+
+    // === Clave ===
+
+    /** Hash de 128 bits (MurmurHash3 x64) de los bytes, sembrado con la configuración del lexer. */
+    static String key(ByteBuffer source) {
+        ByteBuffer b = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = TokenFile.CONFIG_HASH;
+        long h2 = TokenFile.VERSION;
+        int start = b.position();
+        int len = b.remaining();
+        int i = start;
+        for (int end = start + (len & ~15); i < end; i += 16) {
+            long k1 = b.getLong(i);
+            long k2 = b.getLong(i + 8);
+            k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+            h1 = Long.rotateLeft(h1, 27); h1 += h2; h1 = h1 * 5 + 0x52dce729;
+            k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+            h2 = Long.rotateLeft(h2, 31); h2 += h1; h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = start + len - i;
+        for (int j = 0; j < tail; j++) {
+            long v = b.get(i + j) & 0xFFL;
+            if (j < 8) k1 ^= v << (8 * j);
+            else k2 ^= v << (8 * (j - 8));
+        }
+        if (tail > 8) {
+            k2 *= c2; k2 = Long.rotateLeft(k2, 33); k2 *= c1; h2 ^= k2;
+        }
+        if (tail > 0) {
+            k1 *= c1; k1 = Long.rotateLeft(k1, 31); k1 *= c2; h1 ^= k1;
+        }
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return String.format("%016x%016x", h1, h2);
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,235 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Formato binario de tokens (.tok) para cachear o pasar la salida del lexer
+ * entre etapas sin volver a lexear ni parsear texto.
+ *
+ *   int     magic 'TOK1'
+ *   byte    versión
+ *   int     huella de la configuración (palabras reservadas y Punct)
+ *   varint  número de tokens N
+ *   varint  número de identificadores S, y S veces: varint longitud + UTF-8
+ *   byte[N] tipo de cada token (ordinal de TokenType)
+ *   N veces:
+ *     varint  hueco desde el final del token anterior (offset delta)
+ *     varint  longitud
+ *     varint  incremento de línea
+ *     varint  columna si cambió la línea, si no incremento de columna
+ *     IDENTIFIER/KEYWORD/SYMBOL/PAREN/BRACE: varint id
+ *     NUMBER/ERROR: varint longitud + lexema en UTF-8
+ *
+ * Línea y columna se guardan por token (en deltas) en vez de como tabla de
+ * inicios de línea porque con Utf8Lexer los offsets van en bytes y las
+ * columnas en chars. Los tipos van aparte para poder recorrerlos sin
+ * decodificar el resto.
+ */
+final class TokenFile {
+    static final int MAGIC = 0x544F4B31; // "TOK1"
+    static final byte VERSION = 1;
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    /** Huella de palabras reservadas y símbolos: los ids del archivo dependen de ellos. */
+    static final int CONFIG_HASH = configHash();
+
+    private TokenFile() {
+    }
+
+    private static int configHash() {
+        int h = 1;
+        for (int i = 0; i < Lexer.KEYWORDS.size(); i++) h = 31 * h + Lexer.KEYWORDS.word(i).hashCode();
+        for (Punct p : Punct.values()) h = 31 * h + p.lexeme.hashCode();
+        for (TokenType t : TYPES) h = 31 * h + t.name().hashCode();
+        return h;
+    }
+
+    // === Escritura ===
+
+    static void write(TokenBuffer tokens, Path path) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16)) {
+            write(tokens, out);
+        }
+    }
+
+    static void write(TokenBuffer tokens, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(CONFIG_HASH);
+        int n = tokens.size();
+        writeVarint(out, n);
+
+        SymbolTable symbols = tokens.symbols();
+        int symbolCount = symbols == null ? 0 : symbols.size();
+        writeVarint(out, symbolCount);
+        for (int i = 0; i < symbolCount; i++) writeString(out, symbols.name(i));
+
+        for (int i = 0; i < n; i++) out.writeByte(tokens.type(i).ordinal());
+
+        int prevEnd = 0;
+        int prevLine = 1;
+        int prevCol = 1;
+        for (int i = 0; i < n; i++) {
+            int start = tokens.start(i);
+            int line = tokens.line(i);
+            int col = tokens.column(i);
+            if (start < prevEnd || line < prevLine) {
+                throw new IllegalArgumentException("tokens desordenados en la posición " + i);
+            }
+            writeVarint(out, start - prevEnd);
+            writeVarint(out, tokens.length(i));
+            writeVarint(out, line - prevLine);
+            writeVarint(out, line == prevLine ? col - prevCol : col);
+            switch (tokens.type(i)) {
+                case NUMBER:
+                case ERROR:
+                    writeString(out, tokens.lexeme(i));
+                    break;
+                case EOF:
+                    break;
+                default:
+                    writeVarint(out, tokens.id(i));
+            }
+            prevEnd = start + tokens.length(i);
+            prevLine = line;
+            prevCol = col;
+        }
+        out.flush();
+    }
+
+    private static void writeVarint(DataOutput out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    // === Lectura ===
+
+    /** Abre un .tok mapeándolo en memoria; los tokens se decodifican al recorrerlos. */
+    static Reader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("archivo de tokens demasiado grande: " + path);
+            return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    static Reader read(ByteBuffer data) throws IOException {
+        return new Reader(data);
+    }
+
+    /**
+     * Lector secuencial sobre los bytes del archivo (sin copiarlos): los
+     * tipos se leen directamente del buffer y cada nextToken() decodifica
+     * solo el token siguiente.
+     */
+    static final class Reader {
+        private final ByteBuffer data;
+        private final int count;
+        private final SymbolTable symbols = new SymbolTable();
+        private final int kindsAt;
+        private int at;      // posición del siguiente token en data
+        private int index = 0;
+        private int prevEnd = 0;
+        private int prevLine = 1;
+        private int prevCol = 1;
+
+        private Reader(ByteBuffer buffer) throws IOException {
+            this.data = buffer.slice();
+            try {
+                if (data.getInt(0) != MAGIC) throw new IOException("no es un archivo de tokens");
+                if (data.get(4) != VERSION) throw new IOException("versión de archivo de tokens no soportada: " + data.get(4));
+                if (data.getInt(5) != CONFIG_HASH) {
+                    throw new IOException("archivo de tokens generado con otras palabras reservadas o símbolos");
+                }
+                at = 9;
+                this.count = readVarint();
+                int symbolCount = readVarint();
+                for (int i = 0; i < symbolCount; i++) {
+                    if (symbols.intern(readString()) != i) throw new IOException("identificador repetido en la tabla");
+                }
+                this.kindsAt = at;
+                at += count;
+            } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+                throw new IOException("archivo de tokens truncado", e);
+            }
+        }
+
+        int size() {
+            return count;
+        }
+
+        /** Tipo del token i, leído directamente del archivo. */
+        TokenType kind(int i) {
+            return TYPES[data.get(kindsAt + i)];
+        }
+
+        SymbolTable symbols() {
+            return symbols;
+        }
+
+        boolean hasNext() {
+            return index < count;
+        }
+
+        /** Siguiente token, o null al terminar. */
+        Token nextToken() {
+            if (index >= count) return null;
+            TokenType type = kind(index++);
+            int start = prevEnd + readVarint();
+            int length = readVarint();
+            int lineDelta = readVarint();
+            int line = prevLine + lineDelta;
+            int column = lineDelta == 0 ? prevCol + readVarint() : readVarint();
+            int id = -1;
+            String lexeme;
+            if (type == TokenType.NUMBER || type == TokenType.ERROR) {
+                lexeme = readString();
+            } else {
+                if (type != TokenType.EOF) id = readVarint();
+                lexeme = Token.canonicalLexeme(type, id, symbols);
+            }
+            prevEnd = start + length;
+            prevLine = line;
+            prevCol = column;
+            return new Token(type, lexeme, start, length, line, column, id, lexeme);
+        }
+
+        List<Token> readTokens() {
+            List<Token> tokens = new ArrayList<>(count - index);
+            Token t;
+            while ((t = nextToken()) != null) tokens.add(t);
+            return tokens;
+        }
+
+        private int readVarint() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data.get(at++);
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) return v;
+            }
+        }
+
+        private String readString() {
+            int len = readVarint();
+            byte[] bytes = new byte[len];
+            data.get(at, bytes);
+            at += len;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
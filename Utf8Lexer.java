@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Lexer que trabaja directamente sobre bytes UTF-8 (byte[], ByteBuffer o un
+ * archivo mapeado) sin decodificar la entrada a String. Los bytes ASCII se
+ * clasifican con la misma tabla que Lexer; las secuencias multibyte solo se
+ * decodifican al encontrarlas (en la práctica, dentro de identificadores).
+ *
+ * Produce los mismos tokens que Lexer, con una diferencia: offset y length
+ * están en bytes. Línea y columna se cuentan igual que en Lexer (la columna
+ * en chars UTF-16).
+ */
+public class Utf8Lexer {
+    private final ByteBuffer bytes;
+    private final ByteBuffer words; // bytes en little endian para Swar; null con -Dlexer.scalar
+    private final AsciiSource source; // vista para lexemas y comparaciones
+    private final int limit;
+    private int[] lineStarts; // en bytes; se calcula en el primer error
+    private int pos = 0;
+    private int line = 1;
+    private int column = 1;
+
+    // Inicio del último token reconocido por lexNext()
+    private int tokStart;
+    private int tokLine;
+    private int tokColumn;
+    private int tokId;
+    private String tokLexeme; // solo para tokens con bytes no ASCII
+
+    private final SymbolTable symbols = new SymbolTable();
+
+    private boolean recovery = false;
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    // Longitud en bytes del último code point decodificado
+    private int cpLength;
+
+    public Utf8Lexer(ByteBuffer bytes) {
+        this.bytes = bytes.slice();
+        this.source = new AsciiSource(this.bytes);
+        this.limit = this.bytes.limit();
+        this.words = Swar.ENABLED ? this.bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN) : null;
+    }
+
+    public Utf8Lexer(byte[] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /** Lexer sobre el archivo mapeado en memoria, sin copiarlo al heap. */
+    public static Utf8Lexer fromPath(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("archivo demasiado grande para mapear: " + path);
+            }
+            return new Utf8Lexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    public List<Token> scanTokens() {
+        ScanRecorder recorder = new ScanRecorder("scanTokens", true, pos, diagnostics);
+        List<Token> tokens = new ArrayList<>();
+        try {
+            while (true) {
+                Token t = nextToken();
+                tokens.add(t);
+                if (t.type == TokenType.EOF) break;
+            }
+        } catch (LexicalException e) {
+            recorder.fail(pos, tokens.size());
+            throw e;
+        }
+        recorder.done(pos, tokens);
+        return tokens;
+    }
+
+    public Token nextToken() {
+        TokenType type = lexNext();
+        String lexeme = tokLexeme;
+        if (lexeme == null && type != TokenType.NUMBER && type != TokenType.ERROR) {
+            lexeme = Token.canonicalLexeme(type, tokId, symbols);
+        }
+        return new Token(type, source, tokStart, pos - tokStart, tokLine, tokColumn, tokId, lexeme);
+    }
+
+    /** Igual que Lexer.scanToBuffer(); los offsets del buffer están en bytes. */
+    public TokenBuffer scanToBuffer() {
+        ScanRecorder recorder = new ScanRecorder("scanToBuffer", true, pos, diagnostics);
+        TokenBuffer buffer = new TokenBuffer(source, symbols, (limit >>> 3) + 16);
+        try {
+            TokenType type;
+            do {
+                type = lexNext();
+                buffer.add(type, tokStart, pos - tokStart, tokLine, tokColumn, tokId);
+            } while (type != TokenType.EOF);
+        } catch (LexicalException e) {
+            recorder.fail(pos, buffer.size());
+            throw e;
+        }
+        recorder.done(pos, buffer);
+        return buffer;
+    }
+
+    public void setRecoveryMode(boolean recovery) {
+        this.recovery = recovery;
+    }
+
+    public List<Diagnostic> diagnostics() {
+        return diagnostics;
+    }
+
+    public String render(Diagnostic d) {
+        return Lexer.formatError(d, lineText(d.line));
+    }
+
+    public SymbolTable symbols() {
+        return symbols;
+    }
+
+    // === Núcleo ===
+
+    private TokenType lexNext() {
+        while (pos < limit) {
+            int b = bytes.get(pos);
+
+            tokStart = pos;
+            tokLine = line;
+            tokColumn = column;
+            tokId = -1;
+            tokLexeme = null;
+
+            int cp = b >= 0 ? b : decode(pos);
+            byte cls = classOf(cp);
+            switch (cls) {
+                case Lexer.CC_WHITESPACE:
+                    skipWhitespace();
+                    break;
+
+                case Lexer.CC_IDENT:
+                    if (readIdentifier()) {
+                        tokId = Lexer.KEYWORDS.lookup(source, tokStart, pos);
+                        if (tokId >= 0) return TokenType.KEYWORD;
+                        tokId = symbols.intern(source, tokStart, pos);
+                    } else {
+                        // contiene bytes no ASCII: se decodifica solo este identificador
+                        tokId = symbols.intern(decodeRange(tokStart, pos));
+                    }
+                    tokLexeme = symbols.name(tokId);
+                    return TokenType.IDENTIFIER;
+
+                case Lexer.CC_DIGIT:
+                    return readNumber() ? TokenType.NUMBER : TokenType.ERROR;
+
+                case Lexer.CC_PAREN:
+                case Lexer.CC_BRACE: {
+                    Punct p = Punct.single((char) b);
+                    pos++;
+                    column++;
+                    tokId = p.ordinal();
+                    return p.type;
+                }
+
+                case Lexer.CC_SYMBOL:
+                case Lexer.CC_OPERATOR: {
+                    Punct p = pos + 1 < limit ? Punct.pair((char) b, (char) (bytes.get(pos + 1) & 0xFF)) : null;
+                    if (p != null) {
+                        pos += 2;
+                        column += 2;
+                    } else if (cls == Lexer.CC_SYMBOL) {
+                        p = Punct.single((char) b);
+                        pos++;
+                        column++;
+                    } else {
+                        errorInvalidChar(cp, tokStart, tokLine, tokColumn);
+                        pos++;
+                        column++;
+                        return TokenType.ERROR;
+                    }
+                    tokId = p.ordinal();
+                    return p.type;
+                }
+
+                default:
+                    errorInvalidChar(cp, tokStart, tokLine, tokColumn);
+                    advanceCodePoint(cp, b >= 0 ? 1 : cpLength);
+                    if (b < 0) tokLexeme = decodeRange(tokStart, pos);
+                    return TokenType.ERROR;
+            }
+        }
+
+        tokStart = pos;
+        tokLine = line;
+        tokColumn = column;
+        tokId = -1;
+        tokLexeme = null;
+        return TokenType.EOF;
+    }
+
+    private void skipWhitespace() {
+        // un blanco suelto entre tokens no compensa leer 8 bytes; con dos o más
+        // se avanza de 8 en 8 y los saltos de línea se cuentan por máscara
+        if (words != null && pos + 1 < limit && bytes.get(pos + 1) <= ' ') {
+            if (Swar.VECTOR) {
+                while (pos + VectorScan.LENGTH <= limit) {
+                    int r = VectorScan.whitespace(words, pos);
+                    int n = VectorScan.run(r);
+                    if (VectorScan.newlines(r) != 0) {
+                        line += VectorScan.newlines(r);
+                        column = n - VectorScan.lastNewline(r);
+                    } else {
+                        column += n;
+                    }
+                    pos += n;
+                    if (n < VectorScan.LENGTH) return;
+                }
+            }
+            while (pos + 8 <= limit) {
+                long w = words.getLong(pos);
+                int n = Swar.run(Swar.whitespace(w));
+                long nl = Swar.prefix(Swar.newlines(w), n);
+                if (nl != 0) {
+                    line += Long.bitCount(nl);
+                    column = n - Swar.last(nl);
+                } else {
+                    column += n;
+                }
+                pos += n;
+                if (n < 8) return;
+            }
+        }
+        while (pos < limit) {
+            int b = bytes.get(pos);
+            if (b < 0 || Lexer.CHAR_CLASS[b] != Lexer.CC_WHITESPACE) break;
+            pos++;
+            if (b == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+    }
+
+    // Consume el identificador; true si era todo ASCII
+    private boolean readIdentifier() {
+        boolean ascii = true;
+        while (pos < limit) {
+            if (Swar.VECTOR && pos + VectorScan.LENGTH <= limit) {
+                int n = VectorScan.identifier(words, pos);
+                pos += n;
+                column += n;
+                if (n == VectorScan.LENGTH) continue;
+            } else if (words != null && pos + 8 <= limit) {
+                int n = Swar.run(Swar.identifier(words.getLong(pos)));
+                pos += n;
+                column += n;
+                if (n == 8) continue;
+            }
+            // el byte que cortó la racha puede ser no ASCII: lo decide el camino de abajo
+            int b = bytes.get(pos);
+            if (b >= 0) {
+                byte cls = Lexer.CHAR_CLASS[b];
+                if (cls != Lexer.CC_IDENT && cls != Lexer.CC_DIGIT) break;
+                pos++;
+                column++;
+            } else {
+                int cp = decode(pos);
+                byte cls = classOf(cp);
+                if (cls != Lexer.CC_IDENT && cls != Lexer.CC_DIGIT) break;
+                advanceCodePoint(cp, cpLength);
+                ascii = false;
+            }
+        }
+        return ascii;
+    }
+
+    private boolean readNumber() {
+        boolean seenDot = false;
+        boolean ascii = true;
+
+        while (pos < limit) {
+            int b = bytes.get(pos);
+            int cp = b >= 0 ? b : decode(pos);
+            if (classOf(cp) == Lexer.CC_DIGIT) {
+                ascii &= b >= 0;
+                advanceCodePoint(cp, b >= 0 ? 1 : cpLength);
+            } else if (b == '.' && !seenDot) {
+                seenDot = true;
+                pos++;
+                column++;
+                if (pos < limit) {
+                    int next = bytes.get(pos);
+                    int nextCp = next >= 0 ? next : decode(pos);
+                    if (classOf(nextCp) != Lexer.CC_DIGIT) {
+                        errorInvalidChar(nextCp, pos, line, column);
+                        // entra en el token ERROR, salvo un blanco (como en Lexer)
+                        if (classOf(nextCp) != Lexer.CC_WHITESPACE) {
+                            ascii &= next >= 0;
+                            advanceCodePoint(nextCp, next >= 0 ? 1 : cpLength);
+                        }
+                        if (!ascii) tokLexeme = decodeRange(tokStart, pos);
+                        return false;
+                    }
+                }
+            } else {
+                break;
+            }
+        }
+        if (!ascii) tokLexeme = decodeRange(tokStart, pos);
+        return true;
+    }
+
+    private void advanceCodePoint(int cp, int byteLength) {
+        pos += byteLength;
+        column += cp > 0xFFFF ? 2 : 1;
+    }
+
+    // Clase de un code point; los suplementarios no son válidos (como en Lexer)
+    private static byte classOf(int cp) {
+        if (cp < 128) return Lexer.CHAR_CLASS[cp];
+        if (cp > 0xFFFF) return Lexer.CC_INVALID;
+        return Lexer.charClass((char) cp);
+    }
+
+    /**
+     * Decodifica el code point UTF-8 que empieza en at y deja su longitud en
+     * cpLength. Secuencias mal formadas dan U+FFFD de un byte.
+     */
+    private int decode(int at) {
+        int b0 = bytes.get(at) & 0xFF;
+        int n;
+        int cp;
+        if (b0 < 0xC2) {
+            cpLength = 1;
+            return 0xFFFD;
+        } else if (b0 < 0xE0) {
+            n = 2;
+            cp = b0 & 0x1F;
+        } else if (b0 < 0xF0) {
+            n = 3;
+            cp = b0 & 0x0F;
+        } else if (b0 < 0xF5) {
+            n = 4;
+            cp = b0 & 0x07;
+        } else {
+            cpLength = 1;
+            return 0xFFFD;
+        }
+        if (at + n > limit) {
+            cpLength = 1;
+            return 0xFFFD;
+        }
+        for (int i = 1; i < n; i++) {
+            int b = bytes.get(at + i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                cpLength = 1;
+                return 0xFFFD;
+            }
+            cp = (cp << 6) | (b & 0x3F);
+        }
+        boolean overlong = (n == 3 && cp < 0x800) || (n == 4 && cp < 0x10000);
+        if (overlong || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF)) {
+            cpLength = 1;
+            return 0xFFFD;
+        }
+        cpLength = n;
+        return cp;
+    }
+
+    private String decodeRange(int start, int end) {
+        return source.subSequence(start, end).toString();
+    }
+
+    // === Errores ===
+
+    private void errorInvalidChar(int cp, int errOffset, int errLine, int errCol) {
+        char c = cp > 0xFFFF ? Character.highSurrogate(cp) : (char) cp;
+        Diagnostic d = new Diagnostic(errOffset, errLine, errCol, c);
+        LexerEvents.error(d, recovery);
+        if (recovery) {
+            diagnostics.add(d);
+            return;
+        }
+        throw new LexicalException(render(d), d);
+    }
+
+    private String lineText(int lineNo) {
+        if (lineStarts == null) lineStarts = computeLineStarts();
+        if (lineNo < 1 || lineNo > lineStarts.length) return "";
+        int start = lineStarts[lineNo - 1];
+        int end = lineNo < lineStarts.length ? lineStarts[lineNo] - 1 : limit;
+        return decodeRange(start, end);
+    }
+
+    private int[] computeLineStarts() {
+        int count = 1;
+        for (int i = 0; i < limit; i++) {
+            if (bytes.get(i) == '\n') count++;
+        }
+        int[] starts = new int[count];
+        int n = 1;
+        for (int i = 0; i < limit; i++) {
+            if (bytes.get(i) == '\n') starts[n++] = i + 1;
+        }
+        return starts;
+    }
+}
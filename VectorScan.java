@@ -0,0 +1,71 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.*;
+
+/**
+ * Clasificación de 16 a 32 bytes a la vez con la Vector API
+ * (jdk.incubator.vector): el mismo trabajo que Swar pero con el ancho de
+ * los registros SIMD de la CPU, limitado a 32 bytes porque los blancos y
+ * los identificadores rara vez son más largos.
+ *
+ * Solo se usa si Swar.VECTOR es cierto, es decir, si la JVM se arrancó con
+ * --add-modules jdk.incubator.vector; sin el módulo esta clase ni se carga
+ * y Lexer y Utf8Lexer siguen con Swar.
+ */
+final class VectorScan {
+    private static final VectorSpecies<Byte> SPECIES =
+        ByteVector.SPECIES_PREFERRED.length() > 32 ? ByteVector.SPECIES_256 : ByteVector.SPECIES_PREFERRED;
+
+    /** Bytes por bloque. */
+    static final int LENGTH = SPECIES.length();
+
+    static {
+        // enlaza ya la API: si esta JVM no la tiene como se compiló, falla aquí y Swar.VECTOR queda en false
+        whitespace(ByteBuffer.allocate(LENGTH), 0);
+    }
+
+    private VectorScan() {
+    }
+
+    private static ByteVector load(ByteBuffer b, int at) {
+        return ByteVector.fromByteBuffer(SPECIES, b, at, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Blancos seguidos desde at (espacio, tab, '\r' y '\n', como
+     * Swar.whitespace) y los '\n' entre ellos, empaquetados; se leen con
+     * run(), newlines() y lastNewline().
+     */
+    static int whitespace(ByteBuffer b, int at) {
+        ByteVector v = load(b, at);
+        VectorMask<Byte> nl = v.eq((byte) '\n');
+        VectorMask<Byte> ws = v.eq((byte) ' ').or(v.eq((byte) '\t')).or(v.eq((byte) '\r')).or(nl);
+        int run = ws.not().firstTrue(); // LENGTH si todo el bloque es blanco
+        VectorMask<Byte> lines = nl.and(SPECIES.indexInRange(0, run));
+        return run | lines.trueCount() << 8 | (lines.lastTrue() + 1) << 16;
+    }
+
+    static int run(int packed) {
+        return packed & 0xFF;
+    }
+
+    static int newlines(int packed) {
+        return (packed >>> 8) & 0xFF;
+    }
+
+    /** Índice del último '\n' de la racha; solo vale si newlines() no es 0. */
+    static int lastNewline(int packed) {
+        return (packed >>> 16) - 1;
+    }
+
+    /** Bytes ASCII de identificador seguidos desde at (letras, dígitos y '_'); los no ASCII cortan. */
+    static int identifier(ByteBuffer b, int at) {
+        ByteVector v = load(b, at);
+        ByteVector lower = v.or((byte) 0x20); // los bytes no ASCII siguen negativos y no pasan
+        VectorMask<Byte> m = lower.compare(VectorOperators.GE, (byte) 'a')
+            .and(lower.compare(VectorOperators.LE, (byte) 'z'))
+            .or(v.compare(VectorOperators.GE, (byte) '0').and(v.compare(VectorOperators.LE, (byte) '9')))
+            .or(v.eq((byte) '_'));
+        return m.not().firstTrue();
+    }
+}
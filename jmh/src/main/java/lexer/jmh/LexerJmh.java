@@ -0,0 +1,103 @@
+package lexer.jmh;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks JMH del lexer: las mismas operaciones que LexerBench (una por
+ * variante de escaneo) sobre los corpus estándar de CorpusGenerator, pero
+ * con cada combinación de parámetros en su propio fork, de modo que el
+ * perfil del JIT de una no contamina a las demás.
+ *
+ *   mvn -B package
+ *   java -jar jmh/target/benchmarks.jar -prof gc
+ *   java -jar jmh/target/benchmarks.jar -p mix=punct -p variant=buffer,ascii -prof gc
+ *
+ * Los forks arrancan con --add-modules jdk.incubator.vector, así que miden
+ * el camino de VectorScan; -jvmArgsAppend -Dlexer.vector=false mide el de
+ * Swar y -Dlexer.scalar=true el de un carácter por vez.
+ *
+ * Por combinación da escaneos completos por segundo (scan), MB/s
+ * (scan:megabytes) y tokens/s (scan:tokens); -prof gc añade gc.alloc.rate
+ * y gc.alloc.rate.norm, los bytes reservados por escaneo.
+ *
+ * JMH no admite benchmarks en el paquete por defecto y desde un paquete con
+ * nombre no se pueden nombrar sus clases, así que LexerBench.scan y
+ * LexerBench.corpus se enlazan una vez por reflexión. Los MethodHandle son
+ * static final y se llaman con invokeExact: el JIT los trata como llamadas
+ * directas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class LexerJmh {
+    private static final MethodHandle SCAN;
+    private static final MethodHandle CORPUS;
+
+    static {
+        try {
+            Class<?> bench = Class.forName("LexerBench");
+            SCAN = handle(bench.getDeclaredMethod("scan", String.class, String.class, byte[].class));
+            CORPUS = handle(bench.getDeclaredMethod("corpus", String.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static MethodHandle handle(Method m) throws IllegalAccessException {
+        m.setAccessible(true); // LexerBench y sus métodos son de paquete
+        return MethodHandles.lookup().unreflect(m);
+    }
+
+    /** Mezcla de tokens de CorpusGenerator. */
+    @Param({"mixed", "ident", "number", "punct", "space"})
+    public String mix;
+
+    /** Tamaño del corpus en KB. */
+    @Param({"64", "1024", "16384"})
+    public int size;
+
+    /** tokens, buffer, ascii, utf8 o stream (ver LexerBench). */
+    @Param({"tokens", "buffer", "ascii", "utf8", "stream"})
+    public String variant;
+
+    private String text;
+    private byte[] bytes;
+
+    /** Contadores que JMH divide por el tiempo medido: MB/s y tokens/s junto a la puntuación. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+            tokens = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        text = (String) CORPUS.invokeExact(mix, size);
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Escanea el corpus entero; devuelve el número de tokens para que JMH lo consuma. */
+    @Benchmark
+    public long scan(Throughput counters) throws Throwable {
+        long n = (long) SCAN.invokeExact(variant, text, bytes);
+        counters.megabytes += bytes.length / 1e6;
+        counters.tokens += n;
+        return n;
+    }
+}